@@ -0,0 +1,108 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bytes allocated by the {@link Interpreter} for each evaluated
+ * node on the loops of {@link Sources#arithmetic(int)} and {@link
+ * Sources#loop(int)}, reported in the {@code bytesPerNode} counter, and by
+ * {@link Environment#create(Object)} against an object with its own {@link
+ * Scope} and {@link Environment.Type} as it was created before. Running with
+ * {@code -prof gc} reports the allocation rate as well.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"10000"})
+    public int iterations;
+
+    private Ast.Source arithmetic;
+    private Ast.Source loop;
+    private final Object value = BigInteger.valueOf(42);
+
+    @Setup
+    public void setup() {
+        arithmetic = Sources.parse(Sources.arithmetic(iterations));
+        new Resolver().visit(arithmetic);
+        loop = Sources.parse(Sources.loop(iterations));
+        new Resolver().visit(loop);
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Allocation {
+
+        public double bytesPerNode;
+
+    }
+
+    @Benchmark
+    public Object arithmetic(Allocation allocation) {
+        return evaluate(arithmetic, allocation);
+    }
+
+    @Benchmark
+    public Object loop(Allocation allocation) {
+        return evaluate(loop, allocation);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Environment.PlcObject create() {
+        return Environment.create(value);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Environment.PlcObject createWithScope() {
+        return new Environment.PlcObject(new Scope(null), value);
+    }
+
+    private static Object evaluate(Ast.Source source, Allocation allocation) {
+        CountingInterpreter interpreter = new CountingInterpreter();
+        long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        Object result = interpreter.visit(source).getValue();
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        allocation.bytesPerNode = (double) bytes / interpreter.nodes;
+        return result;
+    }
+
+    private static final class CountingInterpreter extends Interpreter {
+
+        private long nodes = 0;
+
+        private CountingInterpreter() {
+            super(null);
+        }
+
+        @Override
+        public Environment.PlcObject visit(Ast ast) {
+            nodes++;
+            return super.visit(ast);
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Integer arithmetic on {@link BigInteger}s with arithmetic on longs
+ * (see {@link Interpreter#setLongArithmetic(boolean)}), on the loop of {@link
+ * Sources#arithmetic(int)} and on a single addition.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    @Param({"10000"})
+    public int iterations;
+
+    private Ast.Source source;
+    private Ast.Expression.Binary addition;
+    private Interpreter bigIntegerInterpreter;
+    private Interpreter longInterpreter;
+
+    @Setup
+    public void setup() {
+        source = Sources.parse(Sources.arithmetic(iterations));
+        new Resolver().visit(source);
+        addition = new Ast.Expression.Binary("+",
+                new Ast.Expression.Literal(BigInteger.valueOf(123456789)),
+                new Ast.Expression.Literal(BigInteger.valueOf(987654321)));
+        bigIntegerInterpreter = new Interpreter(null);
+        bigIntegerInterpreter.setLongArithmetic(false);
+        longInterpreter = new Interpreter(null);
+    }
+
+    @Benchmark
+    public Object bigIntegerLoop() {
+        Interpreter interpreter = new Interpreter(null);
+        interpreter.setLongArithmetic(false);
+        return interpreter.visit(source).getValue();
+    }
+
+    @Benchmark
+    public Object longLoop() {
+        return new Interpreter(null).visit(source).getValue();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Environment.PlcObject bigIntegerAddition() {
+        return bigIntegerInterpreter.visit(addition);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Environment.PlcObject longAddition() {
+        return longInterpreter.visit(addition);
+    }
+
+}
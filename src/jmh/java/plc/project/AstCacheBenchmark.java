@@ -0,0 +1,54 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time to get a source by lexing and parsing it, as on a cold
+ * start, with loading it from an {@link AstCache} which already contains it,
+ * as on a warm start.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AstCacheBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    public int size;
+
+    private String input;
+    private AstCache cache;
+
+    @Setup
+    public void setup() throws IOException {
+        input = Sources.programOfSize(size);
+        cache = new AstCache(Files.createTempDirectory("ast"));
+        cache.load(input);
+    }
+
+    @Benchmark
+    public Ast.Source cold() {
+        return new Parser(new TableLexer(input).lex()).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source warm() {
+        return cache.load(input);
+    }
+
+}
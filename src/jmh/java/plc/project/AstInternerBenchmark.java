@@ -0,0 +1,94 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing with and without an {@link AstInterner}. The footprint
+ * benchmarks report the retained heap of the source in the {@code
+ * retainedBytes} counter (run with a large heap, such as {@code -Xmx4g}),
+ * along with the estimate of the interner in {@code deduplicatedBytes}, and
+ * the parse benchmarks the time to parse each way.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AstInternerBenchmark {
+
+    @Param({"16777216"})
+    public int size;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        tokens = new TableLexer(Sources.programOfSize(size)).lex();
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytes;
+        public long deduplicatedBytes;
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public Ast.Source plainFootprint(Footprint footprint) {
+        long before = usedMemory();
+        Ast.Source source = new Parser(tokens).parseSource();
+        footprint.retainedBytes = usedMemory() - before;
+        return source;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public Ast.Source internedFootprint(Footprint footprint) {
+        long before = usedMemory();
+        AstInterner interner = new AstInterner();
+        Parser parser = new Parser(tokens);
+        parser.setInterner(interner);
+        Ast.Source source = parser.parseSource();
+        footprint.retainedBytes = usedMemory() - before;
+        footprint.deduplicatedBytes = interner.getDeduplicatedBytes();
+        return source;
+    }
+
+    @Benchmark
+    public Ast.Source plain() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source interned() {
+        Parser parser = new Parser(tokens);
+        parser.setInterner(new AstInterner());
+        return parser.parseSource();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,192 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FlatAst} with the {@link Ast} classes for large programs.
+ * The footprint benchmarks report the retained heap per node in the {@code
+ * bytesPerNode} counter (run with a large heap, such as {@code -Xmx4g}), and
+ * the literal benchmarks the time to count every literal, which is a
+ * recursive visit of the tree and a linear scan of the flat encoding.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlatAstBenchmark {
+
+    @Param({"16777216"})
+    public int size;
+
+    private List<Token> tokens;
+    private Ast.Source tree;
+    private FlatAst flat;
+
+    @Setup
+    public void setup() {
+        tokens = new TableLexer(Sources.programOfSize(size)).lex();
+        tree = new Parser(tokens).parseSource();
+        flat = FlatAst.of(tree);
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerNode;
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public Ast.Source treeFootprint(Footprint footprint) {
+        long before = usedMemory();
+        Ast.Source source = new Parser(tokens).parseSource();
+        footprint.bytesPerNode = (usedMemory() - before) / flat.size();
+        return source;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public FlatAst flatFootprint(Footprint footprint) {
+        long before = usedMemory();
+        FlatAst source = new Parser(tokens).parseFlatSource();
+        footprint.bytesPerNode = (usedMemory() - before) / source.size();
+        return source;
+    }
+
+    @Benchmark
+    public int treeLiterals() {
+        return new Literals().visit(tree);
+    }
+
+    @Benchmark
+    public int flatLiterals() {
+        int count = 0;
+        for (int node = 0; node < flat.size(); node++) {
+            if (flat.getKind(node) == FlatAst.LITERAL) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Counts the literals in a tree.
+     */
+    private static final class Literals implements Ast.Visitor<Integer> {
+
+        private int visit(List<? extends Ast> list) {
+            int count = 0;
+            for (Ast ast : list) {
+                count += visit(ast);
+            }
+            return count;
+        }
+
+        private int visitNullable(Ast ast) {
+            return ast == null ? 0 : visit(ast);
+        }
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            return visit(ast.getFields()) + visit(ast.getMethods());
+        }
+
+        @Override
+        public Integer visit(Ast.Field ast) {
+            return ast.getValue().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Method ast) {
+            return visit(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Expression ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Declaration ast) {
+            return ast.getValue().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Assignment ast) {
+            return visit(ast.getReceiver()) + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.If ast) {
+            return visit(ast.getCondition()) + visit(ast.getThenStatements()) + visit(ast.getElseStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.For ast) {
+            return visitNullable(ast.getInitialization()) + visit(ast.getCondition())
+                    + visitNullable(ast.getIncrement()) + visit(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.While ast) {
+            return visit(ast.getCondition()) + visit(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Return ast) {
+            return visitNullable(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Literal ast) {
+            return 1;
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Group ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Binary ast) {
+            return visit(ast.getLeft()) + visit(ast.getRight());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Access ast) {
+            return ast.getReceiver().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Function ast) {
+            return ast.getReceiver().map(this::visit).orElse(0) + visit(ast.getArguments());
+        }
+
+    }
+
+}
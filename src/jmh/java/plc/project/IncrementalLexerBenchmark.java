@@ -0,0 +1,58 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single keystroke in the middle of a large source,
+ * re-lexed by {@link IncrementalLexer} against a full {@link TableLexer#lex()}.
+ * Each invocation types a character and then deletes it again, so the source
+ * stays the same between invocations.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IncrementalLexerBenchmark {
+
+    @Param({"65536", "1048576", "4194304"})
+    public int size;
+
+    private String input;
+    private int offset;
+    private IncrementalLexer lexer;
+
+    @Setup
+    public void setup() {
+        input = Sources.programOfSize(size);
+        offset = input.indexOf("DEF", input.length() / 2) + 1;
+        lexer = new IncrementalLexer(input);
+    }
+
+    @Benchmark
+    public List<Token> incremental() {
+        lexer.edit(offset, 0, "x");
+        return lexer.edit(offset, 1, "");
+    }
+
+    @Benchmark
+    public List<Token> full() {
+        String edited = input.substring(0, offset) + "x" + input.substring(offset);
+        new TableLexer(edited).lex();
+        return new TableLexer(input).lex();
+    }
+
+}
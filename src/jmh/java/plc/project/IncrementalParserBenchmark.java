@@ -0,0 +1,57 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of renaming a method in the middle of a large source,
+ * re-parsed by {@link IncrementalParser} against lexing and parsing the whole
+ * source again. As in {@link IncrementalLexerBenchmark}, each invocation types
+ * a character and then deletes it again.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IncrementalParserBenchmark {
+
+    @Param({"65536", "1048576", "4194304"})
+    public int size;
+
+    private String input;
+    private int offset;
+    private IncrementalParser parser;
+
+    @Setup
+    public void setup() {
+        input = Sources.programOfSize(size);
+        offset = input.indexOf("DEF ", input.length() / 2) + 4;
+        parser = new IncrementalParser(input);
+    }
+
+    @Benchmark
+    public Ast.Source incremental() {
+        parser.edit(offset, 0, "x");
+        return parser.edit(offset, 1, "");
+    }
+
+    @Benchmark
+    public Ast.Source full() {
+        String edited = input.substring(0, offset) + "x" + input.substring(offset);
+        new Parser(new TableLexer(edited).lex()).parseSource();
+        return new Parser(new TableLexer(input).lex()).parseSource();
+    }
+
+}
@@ -0,0 +1,68 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Lexer} and {@link TableLexer} on multi-megabyte inputs. The
+ * {@code tokens} counter reports tokens/sec alongside lexes/sec.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"1048576", "4194304"})
+    public int size;
+
+    private String input;
+
+    @Setup
+    public void setup() {
+        input = Sources.programOfSize(size);
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+
+    }
+
+    @Benchmark
+    public List<Token> regex(Counters counters) {
+        List<Token> tokens = new Lexer(input).lex();
+        counters.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public List<Token> table(Counters counters) {
+        List<Token> tokens = new TableLexer(input).lex();
+        counters.tokens += tokens.size();
+        return tokens;
+    }
+
+}
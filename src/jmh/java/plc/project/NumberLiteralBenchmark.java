@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a program made of numeric literals, using tokens with the values
+ * computed by {@link TableLexer} against the same tokens without values, for
+ * which the parser has to parse each literal again.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NumberLiteralBenchmark {
+
+    @Param({"10000"})
+    public int fields;
+
+    private List<Token> values;
+    private List<Token> literals;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            builder.append("LET CONST field").append(i).append(": Decimal = ")
+                    .append(i * 7919L).append(".").append(i).append(" * ").append(i).append(" / -12.75;\n");
+        }
+        values = new TableLexer(builder.toString()).lex();
+        literals = new ArrayList<>();
+        for (Token token : values) {
+            literals.add(new Token(token.getType(), token.getLiteral(), token.getIndex()));
+        }
+    }
+
+    @Benchmark
+    public Ast.Source values() {
+        return new Parser(values).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source literals() {
+        return new Parser(literals).parseSource();
+    }
+
+}
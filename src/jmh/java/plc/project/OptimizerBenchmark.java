@@ -0,0 +1,88 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Interpreter} on the loop of {@link
+ * Sources#constants(int)} before and after the {@link Optimizer}. The number
+ * of binary expressions evaluated per run is reported in the {@code
+ * binaries} counter.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OptimizerBenchmark {
+
+    @Param({"10000"})
+    public int iterations;
+
+    private Ast.Source source;
+    private Ast.Source optimized;
+
+    @Setup
+    public void setup() {
+        source = Sources.parse(Sources.constants(iterations));
+        optimized = (Ast.Source) new Optimizer().visit(source);
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Work {
+
+        public long binaries;
+
+    }
+
+    @Benchmark
+    public Object plain(Work work) {
+        CountingInterpreter interpreter = new CountingInterpreter();
+        Object result = interpreter.visit(source).getValue();
+        work.binaries = interpreter.binaries;
+        return result;
+    }
+
+    @Benchmark
+    public Object optimized(Work work) {
+        CountingInterpreter interpreter = new CountingInterpreter();
+        Object result = interpreter.visit(optimized).getValue();
+        work.binaries = interpreter.binaries;
+        return result;
+    }
+
+    @Benchmark
+    public Ast optimize() {
+        return new Optimizer().visit(source);
+    }
+
+    private static final class CountingInterpreter extends Interpreter {
+
+        private long binaries = 0;
+
+        private CountingInterpreter() {
+            super(null);
+        }
+
+        @Override
+        public Environment.PlcObject visit(Ast.Expression.Binary ast) {
+            binaries++;
+            return super.visit(ast);
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PackedTokens} with an {@code ArrayList<Token>} for inputs
+ * of millions of tokens. The footprint benchmarks report the retained heap
+ * per token in the {@code bytesPerToken} counter (run with a large heap, such
+ * as {@code -Xmx4g}), and the parse benchmarks the time to parse each.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackedTokensBenchmark {
+
+    @Param({"16777216"})
+    public int size;
+
+    private String input;
+    private List<Token> list;
+    private PackedTokens packed;
+
+    @Setup
+    public void setup() {
+        input = Sources.programOfSize(size);
+        list = new TableLexer(input).lex();
+        packed = new TableLexer(input).lexPacked();
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerToken;
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public List<Token> listFootprint(Footprint footprint) {
+        long before = usedMemory();
+        List<Token> tokens = new TableLexer(input).lex();
+        footprint.bytesPerToken = (usedMemory() - before) / tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public PackedTokens packedFootprint(Footprint footprint) {
+        long before = usedMemory();
+        PackedTokens tokens = new TableLexer(input).lexPacked();
+        footprint.bytesPerToken = (usedMemory() - before) / tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public Ast.Source parseList() {
+        return new Parser(list).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parsePacked() {
+        return new Parser(packed).parseSource();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,59 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parser throughput on pre-lexed tokens, for an expression-dense
+ * program, deeply nested arithmetic and the general program from {@link
+ * Sources#program(int)}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"10000"})
+    public int members;
+
+    private List<Token> expressions;
+    private List<Token> arithmetic;
+    private List<Token> program;
+
+    @Setup
+    public void setup() {
+        expressions = new TableLexer(Sources.expressions(members)).lex();
+        arithmetic = new TableLexer(Sources.arithmetic(members, 32)).lex();
+        program = new TableLexer(Sources.program(members)).lex();
+    }
+
+    @Benchmark
+    public Ast.Source expressions() {
+        return new Parser(expressions).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source arithmetic() {
+        return new Parser(arithmetic).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source program() {
+        return new Parser(program).parseSource();
+    }
+
+}
@@ -0,0 +1,52 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures method calls and returns in the {@link Interpreter} on the
+ * recursive Fibonacci of {@link Sources#fib(int)}, with variables looked up by
+ * name and resolved by the {@link Resolver}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecursionBenchmark {
+
+    @Param({"25"})
+    public int n;
+
+    private Ast.Source names;
+    private Ast.Source slots;
+
+    @Setup
+    public void setup() {
+        names = Sources.parse(Sources.fib(n));
+        slots = Sources.parse(Sources.fib(n));
+        new Resolver().visit(slots);
+    }
+
+    @Benchmark
+    public Object names() {
+        return new Interpreter(null).visit(names).getValue();
+    }
+
+    @Benchmark
+    public Object slots() {
+        return new Interpreter(null).visit(slots).getValue();
+    }
+
+}
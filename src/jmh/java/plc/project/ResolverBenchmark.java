@@ -0,0 +1,59 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Interpreter} looking up variables by name in a {@link
+ * Scope} with reading them from the {@link Frame} slots assigned by the
+ * {@link Resolver}, on the nested loops of {@link Sources#nested(int)}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResolverBenchmark {
+
+    @Param({"100", "300"})
+    public int iterations;
+
+    private Ast.Source names;
+    private Ast.Source slots;
+
+    @Setup
+    public void setup() {
+        names = Sources.parse(Sources.nested(iterations));
+        slots = Sources.parse(Sources.nested(iterations));
+        new Resolver().visit(slots);
+    }
+
+    @Benchmark
+    public Object names() {
+        return new Interpreter(null).visit(names).getValue();
+    }
+
+    @Benchmark
+    public Object slots() {
+        return new Interpreter(null).visit(slots).getValue();
+    }
+
+    @Benchmark
+    public Ast.Source resolve() {
+        Ast.Source source = Sources.parse(Sources.nested(iterations));
+        new Resolver().visit(source);
+        return source;
+    }
+
+}
@@ -0,0 +1,202 @@
+package plc.project;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Generates synthetic programs for the benchmarks. Every program lexes and
+ * parses, and uses every kind of token the lexer produces.
+ */
+final class Sources {
+
+    private Sources() {}
+
+    /**
+     * Returns a program with the given number of fields and methods.
+     */
+    static String program(int members) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < members; i++) {
+            builder.append("LET CONST field").append(i).append(": Integer = ").append(i).append(";\n");
+        }
+        for (int i = 0; i < members; i++) {
+            builder.append("DEF method").append(i).append("(a, b): Integer DO\n")
+                    .append("    LET name: String = \"value \\\"").append(i).append("\\\"\\n\";\n")
+                    .append("    LET letter: Character = 'c';\n")
+                    .append("    IF a < b && b != 0 DO\n")
+                    .append("        print(name.slice(0, 3));\n")
+                    .append("    ELSE\n")
+                    .append("        RETURN a * 2;\n")
+                    .append("    END\n")
+                    .append("    WHILE a >= 10 DO\n")
+                    .append("        a = a / 2.5;\n")
+                    .append("    END\n")
+                    .append("    RETURN -1;\n")
+                    .append("END\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a program of fields initialized by dense expressions, using
+     * every binary operator which can be lexed.
+     */
+    static String expressions(int fields) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            builder.append("LET CONST field").append(i).append(": Boolean = ")
+                    .append("(a * 2 / b) < c.d && f(x, y * 3) != 4 == (z >= 5.5) && ")
+                    .append("obj.method(").append(i).append(") <= w / 7 * v && u > t.s * r;\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a program of fields initialized by arithmetic nested in
+     * parentheses to the given depth.
+     */
+    static String arithmetic(int fields, int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            builder.append("LET CONST field").append(i).append(": Decimal = ");
+            for (int j = 0; j < depth; j++) {
+                builder.append('(');
+            }
+            builder.append(i);
+            for (int j = 1; j <= depth; j++) {
+                builder.append(" * ").append(j).append(" / x.y * 2.5 / z)");
+            }
+            builder.append(";\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a program whose main method loops the given number of times,
+     * branching and calling a method on every iteration. Use {@link
+     * #parse(String)}, since it adds with {@code +}.
+     */
+    static String loop(int iterations) {
+        return "DEF twice(x) DO\n" +
+                "    RETURN x * 2;\n" +
+                "END\n" +
+                "DEF main() DO\n" +
+                "    LET sum = 0;\n" +
+                "    LET i = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        IF i / 3 * 3 == i DO\n" +
+                "            sum = sum + twice(i);\n" +
+                "        ELSE\n" +
+                "            sum = sum + i;\n" +
+                "        END\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END\n";
+    }
+
+    /**
+     * Returns a program like {@link #loop(int)} whose loop evaluates constant
+     * subexpressions on every iteration. Use {@link #parse(String)}.
+     */
+    static String constants(int iterations) {
+        return "DEF main() DO\n" +
+                "    LET sum = 0;\n" +
+                "    LET i = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        IF (1 < 2) && i / 3 * 3 == i DO\n" +
+                "            sum = sum + (60 * 60 * 24) / (2 * 2 * 3);\n" +
+                "        ELSE\n" +
+                "            sum = sum + (2 * 3 + 4) * i;\n" +
+                "        END\n" +
+                "        i = i + (2 / 2);\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END\n";
+    }
+
+    /**
+     * Returns a program whose main method runs two nested loops of the given
+     * number of iterations each, reading variables declared outside of both
+     * loops. Use {@link #parse(String)}.
+     */
+    static String nested(int iterations) {
+        return "DEF main() DO\n" +
+                "    LET sum = 0;\n" +
+                "    LET i = 0;\n" +
+                "    LET j = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        j = 0;\n" +
+                "        WHILE j < " + iterations + " DO\n" +
+                "            IF (i + j) / 2 * 2 == i + j DO\n" +
+                "                LET k = i * j;\n" +
+                "                sum = sum + k;\n" +
+                "            ELSE\n" +
+                "                sum = sum + j;\n" +
+                "            END\n" +
+                "            j = j + 1;\n" +
+                "        END\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END\n";
+    }
+
+    /**
+     * Returns a program whose main method loops the given number of times,
+     * doing only Integer arithmetic. Use {@link #parse(String)}.
+     */
+    static String arithmetic(int iterations) {
+        return "DEF main() DO\n" +
+                "    LET sum = 0;\n" +
+                "    LET i = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        sum = (sum * 3 + i * i) / 4 + i / 2;\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END\n";
+    }
+
+    /**
+     * Returns a program whose main method returns the given Fibonacci number,
+     * computed by naive recursion. Use {@link #parse(String)}.
+     */
+    static String fib(int n) {
+        return "DEF fib(n) DO\n" +
+                "    IF n < 2 DO\n" +
+                "        RETURN n;\n" +
+                "    END\n" +
+                "    RETURN fib(n - 1) + fib(n - 2);\n" +
+                "END\n" +
+                "DEF main() DO\n" +
+                "    RETURN fib(" + n + ");\n" +
+                "END\n";
+    }
+
+    /**
+     * Lexes and parses a program. The lexer reads {@code +} and {@code -} as
+     * the sign of a number, so each {@code " + "} and {@code " - "} is lexed
+     * as a placeholder operator of the same length and replaced.
+     */
+    static Ast.Source parse(String source) {
+        List<Token> tokens = new TableLexer(source.replace(" + ", " # ").replace(" - ", " $ ")).lex().stream()
+                .map(token -> token.literalEquals("#") ? new Token(Token.Type.OPERATOR, "+", token.getIndex())
+                        : token.literalEquals("$") ? new Token(Token.Type.OPERATOR, "-", token.getIndex())
+                        : token)
+                .collect(Collectors.toList());
+        return new Parser(tokens).parseSource();
+    }
+
+    /**
+     * Returns a program of at least the given number of characters.
+     */
+    static String programOfSize(int characters) {
+        int members = 1;
+        while (program(members).length() < characters) {
+            members *= 2;
+        }
+        return program(members);
+    }
+
+}
@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes long string literals: lexing and parsing with the value decoded by
+ * {@link TableLexer}, parsing tokens without values (which the parser decodes
+ * in one pass), and the chained {@link String#replace} decoding the parser
+ * used previously.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StringLiteralBenchmark {
+
+    @Param({"100", "10000"})
+    public int length;
+
+    private String input;
+    private List<Token> literals;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("LET CONST field").append(i).append(": String = \"");
+            for (int j = 0; j < length; j += 16) {
+                builder.append("text \\\"quoted\\\"\\n");
+            }
+            builder.append("\";\n");
+        }
+        input = builder.toString();
+        literals = new ArrayList<>();
+        for (Token token : new TableLexer(input).lex()) {
+            literals.add(new Token(token.getType(), token.getLiteral(), token.getIndex()));
+        }
+    }
+
+    @Benchmark
+    public Ast.Source lexed() {
+        return new Parser(new TableLexer(input).tokens()).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source decoded() {
+        return new Parser(literals).parseSource();
+    }
+
+    @Benchmark
+    public void chained(Blackhole blackhole) {
+        for (Token token : literals) {
+            if (token.getType() == Token.Type.STRING) {
+                String literal = token.getLiteral();
+                literal = literal.substring(1, literal.length() - 1);
+                literal = literal.replace("\\b", "\b").replace("\\n", "\n").replace("\\r", "\r").replace("\\t", "\t");
+                literal = literal.replace("\\'", "'").replace("\\\\", "\\").replace("\\\"", "\"");
+                blackhole.consume(literal);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the GC pressure of the {@link Interpreter} with and without the
+ * Integer cache of {@link Environment#setIntegerCache(int, int)}, on the
+ * nested loops of {@link Sources#nested(int)}. The counters report the bytes
+ * allocated per iteration of the inner loop, and the collections and time
+ * spent in GC while running the benchmark.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValueCacheBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    @Param({"30", "300"})
+    public int iterations;
+
+    private Ast.Source source;
+
+    @Setup
+    public void setup() {
+        Environment.setIntegerCache(cache ? -128 : 0, cache ? 1023 : -1);
+        source = Sources.parse(Sources.nested(iterations));
+        new Resolver().visit(source);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Environment.setIntegerCache(-128, 1023);
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Pressure {
+
+        public double bytesPerIteration;
+        public long collections;
+        public long collectionMillis;
+
+    }
+
+    @Benchmark
+    public Object nested(Pressure pressure) {
+        long collections = collections();
+        long millis = collectionMillis();
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        Object result = new Interpreter(null).visit(source).getValue();
+        pressure.bytesPerIteration = (double) (THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes) / iterations / iterations;
+        pressure.collections += collections() - collections;
+        pressure.collectionMillis += collectionMillis() - millis;
+        return result;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += collector.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += collector.getCollectionTime();
+        }
+        return millis;
+    }
+
+}
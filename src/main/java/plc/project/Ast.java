@@ -11,6 +11,38 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    // the start and end offsets in the source, packed as (start << 32 | end)
+    private long span = -1;
+
+    /**
+     * Returns the offset of the first character of this node in the source,
+     * or -1 if the node was not created by the {@link Parser}.
+     */
+    public int getStart() {
+        return (int) (span >> 32);
+    }
+
+    /**
+     * Returns the offset just after the last character of this node in the
+     * source, or -1 if the node was not created by the {@link Parser}.
+     */
+    public int getEnd() {
+        return (int) span;
+    }
+
+    /**
+     * Sets the span of this node. Spans are not part of equality.
+     */
+    void setSpan(int start, int end) {
+        this.span = (long) start << 32 | end & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Calls the {@link Visitor} method for the class of this node, which
+     * dispatches in constant time instead of testing each class in turn.
+     */
+    public abstract <T> T accept(Visitor<T> visitor);
+
     public static final class Source extends Ast {
 
         private final List<Field> fields;
@@ -29,6 +61,11 @@ public abstract class Ast {
             return methods;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -94,6 +131,11 @@ public abstract class Ast {
         }
 
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Field &&
@@ -125,6 +167,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
         
         public Method(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -173,6 +216,24 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots in the frame of this method, 0 if it
+         * declares no variables, or -1 if it has not been resolved by the
+         * {@link Resolver}.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
 
         @Override
         public boolean equals(Object obj) {
@@ -214,6 +275,11 @@ public abstract class Ast {
                 return expression;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Statement.Expression &&
@@ -235,6 +301,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private Optional<Ast.Expression> value;
             private Environment.Variable variable = null;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Ast.Expression> value) {
                 this(name, Optional.empty(), value);
@@ -268,8 +335,24 @@ public abstract class Ast {
             public void setVariable(Environment.Variable variable) {
                 this.variable = variable;
             }
-            
+
+            /**
+             * Returns the slot of this variable in the current frame, or -1 if
+             * it has not been resolved by the {@link Resolver}.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
             
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -309,6 +392,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
@@ -331,7 +419,7 @@ public abstract class Ast {
             private final Ast.Expression condition;
             private final List<Statement> thenStatements;
             private final List<Statement> elseStatements;
-
+            private int frameSize = -1;
 
             public If(Ast.Expression condition, List<Statement> thenStatements, List<Statement> elseStatements) {
                 this.condition = condition;
@@ -351,6 +439,23 @@ public abstract class Ast {
                 return elseStatements;
             }
 
+            /**
+             * Returns the number of slots in the frame of the branch which is
+             * executed, see {@link Method#getFrameSize()}.
+             */
+            public int getFrameSize() {
+                return frameSize;
+            }
+
+            public void setFrameSize(int frameSize) {
+                this.frameSize = frameSize;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
@@ -376,6 +481,7 @@ public abstract class Ast {
             private final Ast.Expression condition;
             private final Statement increment;
             private final List<Statement> statements;
+            private int frameSize = -1;
 
             public For(Statement initialization, Ast.Expression condition, Statement increment, List<Statement> statements) {
                 this.initialization = initialization;
@@ -400,6 +506,23 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns the number of slots in the frame shared by the
+             * initialization and the body, see {@link Method#getFrameSize()}.
+             */
+            public int getFrameSize() {
+                return frameSize;
+            }
+
+            public void setFrameSize(int frameSize) {
+                this.frameSize = frameSize;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
 
@@ -446,6 +569,7 @@ public abstract class Ast {
 
             private final Ast.Expression condition;
             private final List<Statement> statements;
+            private int frameSize = -1;
 
             public While(Ast.Expression condition, List<Statement> statements) {
                 this.condition = condition;
@@ -460,6 +584,23 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns the number of slots in the frame shared by every
+             * iteration, see {@link Method#getFrameSize()}.
+             */
+            public int getFrameSize() {
+                return frameSize;
+            }
+
+            public void setFrameSize(int frameSize) {
+                this.frameSize = frameSize;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
@@ -489,6 +630,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
@@ -504,6 +650,50 @@ public abstract class Ast {
 
         }
 
+        /**
+         * A statement which failed to parse, produced by {@link
+         * Parser#parseSource(List)} in place of the statement so the rest of
+         * the source can still be parsed.
+         */
+        public static final class Error extends Statement {
+
+            private final ParseException exception;
+
+            public Error(ParseException exception) {
+                this.exception = exception;
+            }
+
+            public ParseException getException() {
+                return exception;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj instanceof Error &&
+                        exception.getIndex() == ((Error) obj).exception.getIndex() &&
+                        exception.getMessage().equals(((Error) obj).exception.getMessage());
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(exception.getIndex(), exception.getMessage());
+            }
+
+            @Override
+            public String toString() {
+                return "Ast.Statement.Error{" +
+                        "index=" + exception.getIndex() +
+                        ", message='" + exception.getMessage() + '\'' +
+                        '}';
+            }
+
+        }
+
     }
 
     public static abstract class Expression extends Ast {
@@ -514,6 +704,7 @@ public abstract class Ast {
 
             private final Object literal;
             private Environment.Type type = null;
+            private Environment.PlcObject object = null;
             
             public Literal(Object literal) {
                 this.literal = literal;
@@ -535,6 +726,24 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            /**
+             * Returns the object created for this literal by the {@link
+             * Interpreter}, which is shared by every evaluation since the
+             * value does not change, or null if it has not been evaluated.
+             */
+            Environment.PlcObject getObject() {
+                return object;
+            }
+
+            void setObject(Environment.PlcObject object) {
+                this.object = object;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Literal &&
@@ -578,6 +787,11 @@ public abstract class Ast {
             }
 
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Group &&
@@ -633,6 +847,11 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
@@ -660,6 +879,8 @@ public abstract class Ast {
             private final Optional<Ast.Expression> receiver;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Ast.Expression> receiver, String name) {
                 this.receiver = receiver;
@@ -685,11 +906,38 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the number of frames between this access and the frame
+             * declaring the variable, or -1 if it has not been resolved by the
+             * {@link Resolver} (such as for fields).
+             */
+            public int getDepth() {
+                return depth;
+            }
+
+            /**
+             * Returns the slot of the variable in its frame, or -1 if it has
+             * not been resolved by the {@link Resolver}.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int depth, int slot) {
+                this.depth = depth;
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Access &&
@@ -751,6 +999,11 @@ public abstract class Ast {
                 return getFunction().getReturnType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Expression.Function &&
@@ -777,39 +1030,7 @@ public abstract class Ast {
     public interface Visitor<T> {
 
         default T visit(Ast ast) {
-            if (ast instanceof Ast.Source) {
-                return visit((Ast.Source) ast);
-            } else if (ast instanceof Ast.Field) {
-                return visit((Ast.Field) ast);
-            } else if (ast instanceof Ast.Method) {
-                return visit((Ast.Method) ast);
-            } else if (ast instanceof Ast.Statement.Expression) {
-                return visit((Ast.Statement.Expression) ast);
-            } else if (ast instanceof Ast.Statement.Declaration) {
-                return visit((Ast.Statement.Declaration) ast);
-            } else if (ast instanceof Ast.Statement.Assignment) {
-                return visit((Ast.Statement.Assignment) ast);
-            } else if (ast instanceof Ast.Statement.If) {
-                return visit((Ast.Statement.If) ast);
-            } else if (ast instanceof Ast.Statement.For) {
-                return visit((Ast.Statement.For) ast);
-            } else if (ast instanceof Ast.Statement.While) {
-                return visit((Ast.Statement.While) ast);
-            } else if (ast instanceof Ast.Statement.Return) {
-                return visit((Ast.Statement.Return) ast);
-            } else if (ast instanceof Ast.Expression.Literal) {
-                return visit((Ast.Expression.Literal) ast);
-            } else if (ast instanceof Ast.Expression.Group) {
-                return visit((Ast.Expression.Group) ast);
-            } else if (ast instanceof Ast.Expression.Binary) {
-                return visit((Ast.Expression.Binary) ast);
-            } else if (ast instanceof Ast.Expression.Access) {
-                return visit((Ast.Expression.Access) ast);
-            } else if (ast instanceof Ast.Expression.Function) {
-                return visit((Ast.Expression.Function) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
-            }
+            return ast.accept(this);
         }
 
         T visit(Ast.Source ast);
@@ -832,6 +1053,14 @@ public abstract class Ast {
 
         T visit(Ast.Statement.Return ast);
 
+        /**
+         * Statements which failed to parse cannot be visited, so by default
+         * this rethrows the original exception.
+         */
+        default T visit(Ast.Statement.Error ast) {
+            throw ast.getException();
+        }
+
         T visit(Ast.Expression.Literal ast);
 
         T visit(Ast.Expression.Group ast);
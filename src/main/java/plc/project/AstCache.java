@@ -0,0 +1,159 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of parsed sources in a directory, so a source which has been parsed
+ * before is loaded without running the lexer or parser.
+ *
+ * Each source is stored as a {@link FlatAst} in a file named by the SHA-256
+ * hash of the source. The file starts with a header of a magic number, the
+ * format {@link #VERSION}, the hash, the length of the payload and a CRC32 of
+ * the payload, and is memory-mapped when loaded. A file which fails any of
+ * these checks is treated as a miss and replaced.
+ */
+public final class AstCache {
+
+    /**
+     * The format version, which must be incremented whenever the encoding of
+     * {@link FlatAst} changes.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x504C4341; // PLCA
+    private static final int HEADER = 4 + 4 + 32 + 4 + 8;
+
+    private final Path directory;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the parsed source, loading it from the cache if present and
+     * otherwise parsing it and adding it to the cache. Sources which fail to
+     * parse are not cached, and throw the {@link ParseException} as usual.
+     */
+    public Ast.Source load(String source) throws ParseException {
+        byte[] hash = hash(source);
+        Path path = getPath(hash);
+        FlatAst flat = read(path, hash);
+        if (flat == null) {
+            flat = new Parser(new TableLexer(source).lex()).parseFlatSource();
+            write(path, hash, flat);
+        }
+        return flat.toSource();
+    }
+
+    /**
+     * Returns the path of the cache file for the given source.
+     */
+    public Path getPath(String source) {
+        return getPath(hash(source));
+    }
+
+    private Path getPath(byte[] hash) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(name.append(".ast").toString());
+    }
+
+    /**
+     * Reads the cache file, or returns null if it is missing or invalid.
+     */
+    private static FlatAst read(Path path, byte[] hash) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] stored = new byte[hash.length];
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || !MessageDigest.isEqual(hash, get(buffer, stored))) {
+                return null;
+            }
+            long checksum = buffer.getLong();
+            int length = buffer.getInt();
+            if (length != buffer.remaining()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+            FlatAst flat = FlatAst.read(buffer);
+            return buffer.hasRemaining() ? null : flat;
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache file to a temporary file first, which is then moved
+     * into place so a concurrent {@link #load(String)} never sees a partial
+     * file.
+     */
+    private void write(Path path, byte[] hash, FlatAst flat) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(payload)) {
+                flat.write(out);
+            }
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(VERSION).put(hash).putLong(crc.getValue()).putInt(bytes.length);
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, null, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    ByteBuffer[] buffers = {header.flip(), ByteBuffer.wrap(bytes)};
+                    while (buffers[1].hasRemaining()) {
+                        channel.write(buffers);
+                    }
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] get(ByteBuffer buffer, byte[] bytes) {
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] hash(String source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
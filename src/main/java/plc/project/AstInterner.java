@@ -0,0 +1,180 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash-conses constant expressions as they are parsed, see {@link
+ * Parser#setInterner(AstInterner)}, so every occurrence of the same literal or
+ * constant subexpression is one shared node holding one shared value.
+ *
+ * A constant expression is a {@link Ast.Expression.Literal}, or a {@link
+ * Ast.Expression.Group} or {@link Ast.Expression.Binary} of constant
+ * expressions. The {@link Analyzer} gives equal constant expressions the same
+ * type, so sharing them is safe. A shared node has no single position, so
+ * its span is cleared to -1 once it is shared rather than pointing at one of
+ * its occurrences, and a position must be taken from the nearest enclosing
+ * node instead. An interner may be shared by several parsers to also share
+ * constants across sources.
+ *
+ * The interner counts the nodes it has seen and the duplicates it has
+ * replaced, along with an estimate of the heap they would have retained.
+ */
+public final class AstInterner {
+
+    private final Map<Key, Ast.Expression> nodes = new HashMap<>();
+    private final Set<Ast.Expression> canonical = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long seen = 0;
+    private long deduplicated = 0;
+    private long bytes = 0;
+
+    /**
+     * Returns the canonical node for the given expression if it is constant,
+     * and otherwise the expression itself. The children of the expression
+     * must have been interned already.
+     */
+    public Ast.Expression intern(Ast.Expression expression) {
+        Key key = key(expression);
+        if (key == null) {
+            return expression;
+        }
+        seen++;
+        Ast.Expression existing = nodes.get(key);
+        if (existing != null) {
+            existing.setSpan(-1, -1);
+            deduplicated++;
+            bytes += sizeOf(expression, existing);
+            return existing;
+        }
+        nodes.put(key, expression);
+        canonical.add(expression);
+        return expression;
+    }
+
+    /**
+     * Returns the number of constant expressions which have been interned.
+     */
+    public long getNodes() {
+        return seen;
+    }
+
+    /**
+     * Returns the number of constant expressions which were replaced by an
+     * existing node.
+     */
+    public long getDeduplicatedNodes() {
+        return deduplicated;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the replaced nodes and
+     * their values, assuming a 64-bit JVM with compressed references.
+     */
+    public long getDeduplicatedBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "AstInterner{" +
+                "nodes=" + seen +
+                ", deduplicatedNodes=" + deduplicated +
+                ", deduplicatedBytes=" + bytes +
+                '}';
+    }
+
+    /**
+     * Returns the key of a constant expression, or null if it is not.
+     */
+    private Key key(Ast.Expression expression) {
+        if (expression instanceof Ast.Expression.Literal) {
+            return new Key(null, ((Ast.Expression.Literal) expression).getLiteral(), null, null);
+        } else if (expression instanceof Ast.Expression.Group) {
+            Ast.Expression inner = ((Ast.Expression.Group) expression).getExpression();
+            return canonical.contains(inner) ? new Key("()", null, inner, null) : null;
+        } else if (expression instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) expression;
+            return canonical.contains(binary.getLeft()) && canonical.contains(binary.getRight())
+                    ? new Key(binary.getOperator(), null, binary.getLeft(), binary.getRight())
+                    : null;
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the retained size of a replaced node. Its children are
+     * canonical already, so only the value of a literal is counted with the
+     * node, unless it is the same object as the value of the canonical node
+     * (such as a cached {@link BigInteger}).
+     */
+    private static long sizeOf(Ast.Expression expression, Ast.Expression existing) {
+        if (expression instanceof Ast.Expression.Literal) {
+            Object value = ((Ast.Expression.Literal) expression).getLiteral();
+            return 32 + (value == ((Ast.Expression.Literal) existing).getLiteral() ? 0 : sizeOf(value));
+        } else if (expression instanceof Ast.Expression.Group) {
+            return 32;
+        } else {
+            return 40;
+        }
+    }
+
+    private static long sizeOf(Object value) {
+        if (value instanceof BigInteger) {
+            return 40 + align(16 + 4 * ((((BigInteger) value).abs().bitLength() + 31) / 32));
+        } else if (value instanceof BigDecimal) {
+            // the unscaled value is only a BigInteger if it does not fit a long
+            BigInteger unscaled = ((BigDecimal) value).unscaledValue();
+            return 40 + (unscaled.bitLength() < 64 ? 0 : sizeOf(unscaled));
+        } else if (value instanceof String) {
+            return 24 + align(16 + ((String) value).length());
+        } else if (value instanceof Character) {
+            return (Character) value < 128 ? 0 : 16;
+        }
+        return 0;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * A constant expression, as a literal value compared by equality or an
+     * operator with children compared by identity.
+     */
+    private static final class Key {
+
+        private final String operator;
+        private final Object value;
+        private final Ast.Expression left;
+        private final Ast.Expression right;
+
+        private Key(String operator, Object value, Ast.Expression left, Ast.Expression right) {
+            this.operator = operator;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key
+                    && Objects.equals(operator, ((Key) obj).operator)
+                    && Objects.equals(value, ((Key) obj).value)
+                    && left == ((Key) obj).left
+                    && right == ((Key) obj).right;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operator, value, System.identityHashCode(left), System.identityHashCode(right));
+        }
+
+    }
+
+}
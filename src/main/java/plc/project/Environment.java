@@ -1,5 +1,6 @@
 package plc.project;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -8,8 +9,52 @@ import java.util.Map;
 
 public final class Environment {
 
+    // objects created from a value have no fields or methods, so they share
+    // an empty scope and its type instead of allocating their own
+    private static final Scope VALUE_SCOPE = new Scope(null);
+    private static final Type VALUE_TYPE = new Type("Unknown", "Unknown", VALUE_SCOPE);
+
+    public static final PlcObject TRUE = new PlcObject(VALUE_TYPE, VALUE_SCOPE, Boolean.TRUE);
+    public static final PlcObject FALSE = new PlcObject(VALUE_TYPE, VALUE_SCOPE, Boolean.FALSE);
+
+    private static volatile IntegerCache integers = new IntegerCache(-128, 1023);
+
+    /**
+     * Creates an object holding the given value, which only allocates the
+     * {@link PlcObject} itself. Booleans and cached Integers (see {@link
+     * #setIntegerCache(int, int)}) return a shared object instead.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 32) {
+            PlcObject cached = integers.get(((BigInteger) value).intValue());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return new PlcObject(VALUE_TYPE, VALUE_SCOPE, value);
+    }
+
+    /**
+     * Creates an Integer object from a long, without creating the {@link
+     * BigInteger} value unless it is needed.
+     */
+    public static PlcObject createInteger(long value) {
+        IntegerCache cache = integers;
+        if (value >= cache.low && value <= cache.high) {
+            return cache.objects[(int) (value - cache.low)];
+        }
+        return new PlcObject(VALUE_TYPE, VALUE_SCOPE, value);
+    }
+
+    /**
+     * Sets the range of Integers whose objects are shared, which is -128 to
+     * 1023 by default. An empty range (with high below low) disables the
+     * cache.
+     */
+    public static void setIntegerCache(int low, int high) {
+        integers = new IntegerCache(low, high);
     }
 
     public static final PlcObject NIL = new PlcObject(Type.NIL, new Scope(null), new Object() {
@@ -23,6 +68,31 @@ public final class Environment {
 
     private static final Map<String, Type> TYPES = new HashMap<>();
 
+    /**
+     * The shared objects of a range of Integers, replaced as a whole when the
+     * range changes.
+     */
+    private static final class IntegerCache {
+
+        private final long low;
+        private final long high;
+        private final PlcObject[] objects;
+
+        private IntegerCache(int low, int high) {
+            this.low = low;
+            this.high = high;
+            this.objects = new PlcObject[(int) Math.max(0, (long) high - low + 1)];
+            for (int i = 0; i < objects.length; i++) {
+                objects[i] = new PlcObject(VALUE_TYPE, VALUE_SCOPE, BigInteger.valueOf(low + i));
+            }
+        }
+
+        private PlcObject get(int value) {
+            return value >= low && value <= high ? objects[(int) (value - low)] : null;
+        }
+
+    }
+
     public static Type getType(String name) {
         if (!TYPES.containsKey(name)) {
             throw new RuntimeException("Unknown type " + name + ".");
@@ -112,7 +182,9 @@ public final class Environment {
 
         private final Type type;
         private final Scope scope;
-        private final Object value;
+        private Object value;
+        private final long longValue;
+        private final boolean isLong;
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
@@ -122,6 +194,20 @@ public final class Environment {
             this.type = type;
             this.scope = scope;
             this.value = value;
+            this.isLong = value instanceof BigInteger && ((BigInteger) value).bitLength() < 64;
+            this.longValue = isLong ? ((BigInteger) value).longValue() : 0;
+        }
+
+        /**
+         * Creates an Integer object whose {@link BigInteger} value is only
+         * created by {@link #getValue()}.
+         */
+        public PlcObject(Type type, Scope scope, long value) {
+            this.type = type;
+            this.scope = scope;
+            this.value = null;
+            this.isLong = true;
+            this.longValue = value;
         }
 
         public Variable getField(String name) {
@@ -133,9 +219,24 @@ public final class Environment {
         }
 
         public Object getValue() {
+            if (value == null && isLong) {
+                value = BigInteger.valueOf(longValue);
+            }
             return value;
         }
 
+        /**
+         * Returns true if the value is an Integer which fits in a long, see
+         * {@link #getLong()}.
+         */
+        public boolean isLong() {
+            return isLong;
+        }
+
+        public long getLong() {
+            return longValue;
+        }
+
         public void setField(String name, PlcObject value) {
             scope.lookupVariable(name).setValue(value);
         }
@@ -152,7 +253,7 @@ public final class Environment {
             return "Object{" +
                     "type=" + type +
                     ", scope=" + scope +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     '}';
         }
 
@@ -0,0 +1,815 @@
+package plc.project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A flat encoding of an {@link Ast.Source}, stored as parallel arrays of node
+ * kinds, offsets into a shared operand array and spans instead of one object
+ * per node. Names, operators and literal values are stored once each in a
+ * constant pool.
+ *
+ * Nodes are numbered in pre-order, so the source is node 0 and every node
+ * comes before its children, and the operands of each node are stored in the
+ * same order. A node's operands are the indices of its children and constants
+ * as listed below, where lists are a count followed by that many indices and
+ * absent values are -1.
+ *
+ * <ul>
+ *     <li>{@link #SOURCE}: fields, methods</li>
+ *     <li>{@link #FIELD}: name, type name, constant (0 or 1), value</li>
+ *     <li>{@link #METHOD}: name, return type name, parameters, parameter
+ *     type names, statements</li>
+ *     <li>{@link #EXPRESSION}: expression</li>
+ *     <li>{@link #DECLARATION}: name, type name, value</li>
+ *     <li>{@link #ASSIGNMENT}: receiver, value</li>
+ *     <li>{@link #IF}: condition, then statements, else statements</li>
+ *     <li>{@link #FOR}: initialization, condition, increment, statements</li>
+ *     <li>{@link #WHILE}: condition, statements</li>
+ *     <li>{@link #RETURN}: value</li>
+ *     <li>{@link #ERROR}: exception</li>
+ *     <li>{@link #LITERAL}: literal</li>
+ *     <li>{@link #GROUP}: expression</li>
+ *     <li>{@link #BINARY}: operator, left, right</li>
+ *     <li>{@link #ACCESS}: receiver, name</li>
+ *     <li>{@link #FUNCTION}: receiver, name, arguments</li>
+ * </ul>
+ *
+ * The variables, functions and types set by the {@link Analyzer} are not
+ * part of the encoding.
+ */
+public final class FlatAst {
+
+    public static final byte SOURCE = 0;
+    public static final byte FIELD = 1;
+    public static final byte METHOD = 2;
+    public static final byte EXPRESSION = 3;
+    public static final byte DECLARATION = 4;
+    public static final byte ASSIGNMENT = 5;
+    public static final byte IF = 6;
+    public static final byte FOR = 7;
+    public static final byte WHILE = 8;
+    public static final byte RETURN = 9;
+    public static final byte ERROR = 10;
+    public static final byte LITERAL = 11;
+    public static final byte GROUP = 12;
+    public static final byte BINARY = 13;
+    public static final byte ACCESS = 14;
+    public static final byte FUNCTION = 15;
+
+    private final byte[] kinds;
+    private final int[] offsets;
+    private final long[] spans;
+    private final int[] operands;
+    private final Object[] constants;
+    private final int size;
+
+    private FlatAst(Builder builder) {
+        this.size = builder.size;
+        this.kinds = Arrays.copyOf(builder.kinds, size);
+        this.offsets = Arrays.copyOf(builder.offsets, size);
+        this.spans = Arrays.copyOf(builder.spans, size);
+        this.operands = Arrays.copyOf(builder.operands, builder.length);
+        this.constants = builder.constants.toArray();
+    }
+
+    private FlatAst(byte[] kinds, int[] offsets, long[] spans, int[] operands, Object[] constants) {
+        this.size = kinds.length;
+        this.kinds = kinds;
+        this.offsets = offsets;
+        this.spans = spans;
+        this.operands = operands;
+        this.constants = constants;
+    }
+
+    /**
+     * Encodes the given source.
+     */
+    public static FlatAst of(Ast.Source source) {
+        Builder builder = new Builder();
+        source.getFields().forEach(builder::add);
+        source.getMethods().forEach(builder::add);
+        return builder.build(source.getStart(), source.getEnd());
+    }
+
+    /**
+     * Returns the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of constants in the constant pool.
+     */
+    public int getConstantCount() {
+        return constants.length;
+    }
+
+    public byte getKind(int node) {
+        return kinds[node];
+    }
+
+    public int getStart(int node) {
+        return (int) (spans[node] >> 32);
+    }
+
+    public int getEnd(int node) {
+        return (int) spans[node];
+    }
+
+    /**
+     * Returns the i-th operand of node, see the class documentation.
+     */
+    public int getOperand(int node, int i) {
+        return operands[offsets[node] + i];
+    }
+
+    /**
+     * Returns the constant for the i-th operand of node, or null if absent.
+     */
+    public Object getConstant(int node, int i) {
+        int constant = getOperand(node, i);
+        return constant == -1 ? null : constants[constant];
+    }
+
+    /**
+     * Returns the number of elements in the list starting at the i-th operand
+     * of node. The elements are the following operands.
+     */
+    public int getCount(int node, int i) {
+        return getOperand(node, i);
+    }
+
+    /**
+     * Returns the operand following the list starting at the i-th operand of
+     * node, for nodes with more than one list.
+     */
+    public int skip(int node, int i) {
+        return i + 1 + getCount(node, i);
+    }
+
+    /**
+     * Decodes the node back into the corresponding {@link Ast}, with the same
+     * spans as the original.
+     */
+    public Ast toAst(int node) {
+        Ast ast = decode(node);
+        ast.setSpan(getStart(node), getEnd(node));
+        return ast;
+    }
+
+    public Ast.Source toSource() {
+        return (Ast.Source) toAst(0);
+    }
+
+    /**
+     * Writes the arrays and the constant pool, which are read back by {@link
+     * #read(ByteBuffer)}.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.write(kinds, 0, size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(offsets[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(spans[i]);
+        }
+        out.writeInt(operands.length);
+        for (int operand : operands) {
+            out.writeInt(operand);
+        }
+        out.writeInt(constants.length);
+        for (Object constant : constants) {
+            if (constant == null) {
+                out.writeByte(0);
+            } else if (constant instanceof String) {
+                out.writeByte(1);
+                writeString(out, (String) constant);
+            } else if (constant instanceof BigInteger) {
+                out.writeByte(2);
+                writeBytes(out, ((BigInteger) constant).toByteArray());
+            } else if (constant instanceof BigDecimal) {
+                out.writeByte(3);
+                out.writeInt(((BigDecimal) constant).scale());
+                writeBytes(out, ((BigDecimal) constant).unscaledValue().toByteArray());
+            } else if (constant instanceof Character) {
+                out.writeByte(4);
+                out.writeChar((Character) constant);
+            } else if (constant instanceof Boolean) {
+                out.writeByte(5);
+                out.writeBoolean((Boolean) constant);
+            } else if (constant instanceof ParseException) {
+                out.writeByte(6);
+                out.writeInt(((ParseException) constant).getIndex());
+                writeString(out, ((ParseException) constant).getMessage());
+            } else {
+                throw new AssertionError("Unimplemented constant type: " + constant.getClass().getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Reads a flat AST written by {@link #write(DataOutputStream)}, checking
+     * that node kinds, offsets and operands are in range, see {@link
+     * #validate()}. Throws an {@link IllegalArgumentException} or a {@link
+     * java.nio.BufferUnderflowException} if the buffer is malformed.
+     */
+    static FlatAst read(ByteBuffer buffer) {
+        int size = length(buffer, 13);
+        byte[] kinds = new byte[size];
+        buffer.get(kinds);
+        int[] offsets = new int[size];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + 4 * size);
+        long[] spans = new long[size];
+        buffer.asLongBuffer().get(spans);
+        buffer.position(buffer.position() + 8 * size);
+        int[] operands = new int[length(buffer, 4)];
+        buffer.asIntBuffer().get(operands);
+        buffer.position(buffer.position() + 4 * operands.length);
+        Object[] constants = new Object[length(buffer, 1)];
+        for (int i = 0; i < constants.length; i++) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case 0: constants[i] = null; break;
+                case 1: constants[i] = readString(buffer); break;
+                case 2: constants[i] = new BigInteger(readBytes(buffer)); break;
+                case 3: {
+                    int scale = buffer.getInt();
+                    constants[i] = new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+                    break;
+                }
+                case 4: constants[i] = buffer.getChar(); break;
+                case 5: constants[i] = buffer.get() != 0; break;
+                case 6: {
+                    int index = buffer.getInt();
+                    constants[i] = new ParseException(readString(buffer), index);
+                    break;
+                }
+                default: throw new IllegalArgumentException("Invalid constant tag " + tag + ".");
+            }
+        }
+        if (size == 0 || kinds[0] != SOURCE) {
+            throw new IllegalArgumentException("Missing source node.");
+        }
+        FlatAst ast = new FlatAst(kinds, offsets, spans, operands, constants);
+        ast.validate();
+        return ast;
+    }
+
+    /**
+     * Checks the operands of every node against the layout of its kind. Each
+     * child must come after its parent, as in pre-order, which also rules out
+     * cycles, and must be a member, statement or expression as its position
+     * requires. Each constant must be in the constant pool, and be a string
+     * except for literals and errors.
+     */
+    private void validate() {
+        for (int node = 0; node < size; node++) {
+            if (offsets[node] < 0 || offsets[node] > operands.length) {
+                throw new IllegalArgumentException("Invalid node " + node + ".");
+            }
+            switch (kinds[node]) {
+                case SOURCE:
+                    validateChildren(node, validateChildren(node, 0, FIELD, FIELD), METHOD, METHOD);
+                    break;
+                case FIELD:
+                    validateConstant(node, 0, String.class);
+                    validateConstant(node, 1, String.class);
+                    validateOperand(node, 2);
+                    validateChild(node, 3, LITERAL, FUNCTION);
+                    break;
+                case METHOD:
+                    validateConstant(node, 0, String.class);
+                    validateConstant(node, 1, String.class);
+                    validateChildren(node, validateConstants(node, validateConstants(node, 2)), EXPRESSION, ERROR);
+                    break;
+                case EXPRESSION:
+                case RETURN:
+                case GROUP:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    break;
+                case DECLARATION:
+                    validateConstant(node, 0, String.class);
+                    validateConstant(node, 1, String.class);
+                    validateChild(node, 2, LITERAL, FUNCTION);
+                    break;
+                case ASSIGNMENT:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    validateChild(node, 1, LITERAL, FUNCTION);
+                    break;
+                case IF:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    validateChildren(node, validateChildren(node, 1, EXPRESSION, ERROR), EXPRESSION, ERROR);
+                    break;
+                case FOR:
+                    validateChild(node, 0, EXPRESSION, ERROR);
+                    validateChild(node, 1, LITERAL, FUNCTION);
+                    validateChild(node, 2, EXPRESSION, ERROR);
+                    validateChildren(node, 3, EXPRESSION, ERROR);
+                    break;
+                case WHILE:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    validateChildren(node, 1, EXPRESSION, ERROR);
+                    break;
+                case ERROR:
+                    validateConstant(node, 0, ParseException.class);
+                    break;
+                case LITERAL: {
+                    int constant = validateConstant(node, 0, Object.class);
+                    Object literal = constant == -1 ? null : constants[constant];
+                    if (!(literal == null || literal instanceof Boolean || literal instanceof BigInteger || literal instanceof BigDecimal
+                            || literal instanceof Character || literal instanceof String)) {
+                        throw new IllegalArgumentException("Invalid literal of node " + node + ".");
+                    }
+                    break;
+                }
+                case BINARY:
+                    validateConstant(node, 0, String.class);
+                    validateChild(node, 1, LITERAL, FUNCTION);
+                    validateChild(node, 2, LITERAL, FUNCTION);
+                    break;
+                case ACCESS:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    validateConstant(node, 1, String.class);
+                    break;
+                case FUNCTION:
+                    validateChild(node, 0, LITERAL, FUNCTION);
+                    validateConstant(node, 1, String.class);
+                    validateChildren(node, 2, LITERAL, FUNCTION);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid node " + node + ".");
+            }
+        }
+    }
+
+    private int validateOperand(int node, int i) {
+        if (i >= operands.length - offsets[node]) {
+            throw new IllegalArgumentException("Missing operand " + i + " of node " + node + ".");
+        }
+        return getOperand(node, i);
+    }
+
+    /**
+     * Validates an optional child, whose kind must be between first and last.
+     */
+    private int validateChild(int node, int i, byte first, byte last) {
+        int child = validateOperand(node, i);
+        if (child != -1 && (child <= node || child >= size || kinds[child] < first || kinds[child] > last)) {
+            throw new IllegalArgumentException("Invalid child " + child + " of node " + node + ".");
+        }
+        return child;
+    }
+
+    /**
+     * Validates an optional constant, which must be an instance of type.
+     */
+    private int validateConstant(int node, int i, Class<?> type) {
+        int constant = validateOperand(node, i);
+        if (constant < -1 || constant >= constants.length
+                || constant != -1 && constants[constant] != null && !type.isInstance(constants[constant])) {
+            throw new IllegalArgumentException("Invalid constant " + constant + " of node " + node + ".");
+        }
+        return constant;
+    }
+
+    /**
+     * Validates the list of children starting at the i-th operand, returning
+     * the operand following it. Unlike a single child, elements are required.
+     */
+    private int validateChildren(int node, int i, byte first, byte last) {
+        int count = validateCount(node, i);
+        for (int j = 1; j <= count; j++) {
+            if (validateChild(node, i + j, first, last) == -1) {
+                throw new IllegalArgumentException("Missing child " + j + " of node " + node + ".");
+            }
+        }
+        return i + 1 + count;
+    }
+
+    private int validateConstants(int node, int i) {
+        int count = validateCount(node, i);
+        for (int j = 1; j <= count; j++) {
+            validateConstant(node, i + j, String.class);
+        }
+        return i + 1 + count;
+    }
+
+    private int validateCount(int node, int i) {
+        int count = validateOperand(node, i);
+        if (count < 0 || count > operands.length - offsets[node] - i - 1) {
+            throw new IllegalArgumentException("Invalid count " + count + " of node " + node + ".");
+        }
+        return count;
+    }
+
+    private Ast decode(int node) {
+        switch (kinds[node]) {
+            case SOURCE: {
+                List<Ast.Field> fields = list(node, 0);
+                List<Ast.Method> methods = list(node, skip(node, 0));
+                return new Ast.Source(fields, methods);
+            }
+            case FIELD:
+                return new Ast.Field((String) getConstant(node, 0), (String) getConstant(node, 1), getOperand(node, 2) == 1, optional(node, 3));
+            case METHOD: {
+                Optional<String> returnTypeName = Optional.ofNullable((String) getConstant(node, 1));
+                List<String> parameters = constants(node, 2);
+                int types = skip(node, 2);
+                List<String> parameterTypeNames = constants(node, types);
+                List<Ast.Statement> statements = list(node, skip(node, types));
+                return new Ast.Method((String) getConstant(node, 0), parameters, parameterTypeNames, returnTypeName, statements);
+            }
+            case EXPRESSION:
+                return new Ast.Statement.Expression(child(node, 0));
+            case DECLARATION:
+                return new Ast.Statement.Declaration((String) getConstant(node, 0), Optional.ofNullable((String) getConstant(node, 1)), optional(node, 2));
+            case ASSIGNMENT:
+                return new Ast.Statement.Assignment(child(node, 0), child(node, 1));
+            case IF:
+                return new Ast.Statement.If(child(node, 0), list(node, 1), list(node, skip(node, 1)));
+            case FOR:
+                return new Ast.Statement.For(child(node, 0), child(node, 1), child(node, 2), list(node, 3));
+            case WHILE:
+                return new Ast.Statement.While(child(node, 0), list(node, 1));
+            case RETURN:
+                return new Ast.Statement.Return(child(node, 0));
+            case ERROR:
+                return new Ast.Statement.Error((ParseException) getConstant(node, 0));
+            case LITERAL:
+                return new Ast.Expression.Literal(getConstant(node, 0));
+            case GROUP:
+                return new Ast.Expression.Group(child(node, 0));
+            case BINARY:
+                return new Ast.Expression.Binary((String) getConstant(node, 0), child(node, 1), child(node, 2));
+            case ACCESS:
+                return new Ast.Expression.Access(optional(node, 0), (String) getConstant(node, 1));
+            case FUNCTION:
+                return new Ast.Expression.Function(optional(node, 0), (String) getConstant(node, 1), list(node, 2));
+            default:
+                throw new AssertionError("Unimplemented node kind: " + kinds[node] + ".");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> T child(int node, int i) {
+        int child = getOperand(node, i);
+        return child == -1 ? null : (T) toAst(child);
+    }
+
+    private <T extends Ast> Optional<T> optional(int node, int i) {
+        return Optional.ofNullable(child(node, i));
+    }
+
+    private <T extends Ast> List<T> list(int node, int i) {
+        int count = getCount(node, i);
+        List<T> list = new ArrayList<>(count);
+        for (int j = 1; j <= count; j++) {
+            list.add(child(node, i + j));
+        }
+        return list;
+    }
+
+    private List<String> constants(int node, int i) {
+        int count = getCount(node, i);
+        List<String> list = new ArrayList<>(count);
+        for (int j = 1; j <= count; j++) {
+            list.add((String) getConstant(node, i + j));
+        }
+        return list;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[length(buffer, 1)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the length of an array whose elements take the given number of
+     * bytes, which must fit in the rest of the buffer.
+     */
+    private static int length(ByteBuffer buffer, int bytes) {
+        int length = buffer.getInt();
+        if (length < 0 || (long) length * bytes > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length + ".");
+        }
+        return length;
+    }
+
+    /**
+     * A visitor over the nodes of a {@link FlatAst}, dispatching on the kind
+     * of each node as {@link Ast.Visitor} does on its class.
+     */
+    public interface Visitor<T> {
+
+        default T visit(FlatAst ast, int node) {
+            switch (ast.getKind(node)) {
+                case SOURCE: return visitSource(ast, node);
+                case FIELD: return visitField(ast, node);
+                case METHOD: return visitMethod(ast, node);
+                case EXPRESSION: return visitExpression(ast, node);
+                case DECLARATION: return visitDeclaration(ast, node);
+                case ASSIGNMENT: return visitAssignment(ast, node);
+                case IF: return visitIf(ast, node);
+                case FOR: return visitFor(ast, node);
+                case WHILE: return visitWhile(ast, node);
+                case RETURN: return visitReturn(ast, node);
+                case ERROR: return visitError(ast, node);
+                case LITERAL: return visitLiteral(ast, node);
+                case GROUP: return visitGroup(ast, node);
+                case BINARY: return visitBinary(ast, node);
+                case ACCESS: return visitAccess(ast, node);
+                case FUNCTION: return visitFunction(ast, node);
+                default: throw new AssertionError("Unimplemented node kind: " + ast.getKind(node) + ".");
+            }
+        }
+
+        T visitSource(FlatAst ast, int node);
+
+        T visitField(FlatAst ast, int node);
+
+        T visitMethod(FlatAst ast, int node);
+
+        T visitExpression(FlatAst ast, int node);
+
+        T visitDeclaration(FlatAst ast, int node);
+
+        T visitAssignment(FlatAst ast, int node);
+
+        T visitIf(FlatAst ast, int node);
+
+        T visitFor(FlatAst ast, int node);
+
+        T visitWhile(FlatAst ast, int node);
+
+        T visitReturn(FlatAst ast, int node);
+
+        /**
+         * As in {@link Ast.Visitor}, rethrows the original exception.
+         */
+        default T visitError(FlatAst ast, int node) {
+            throw (ParseException) ast.getConstant(node, 0);
+        }
+
+        T visitLiteral(FlatAst ast, int node);
+
+        T visitGroup(FlatAst ast, int node);
+
+        T visitBinary(FlatAst ast, int node);
+
+        T visitAccess(FlatAst ast, int node);
+
+        T visitFunction(FlatAst ast, int node);
+
+    }
+
+    /**
+     * Encodes fields and methods one at a time, so a source can be encoded
+     * without holding all of its {@link Ast} nodes, see {@link
+     * Parser#parseFlatSource()}.
+     */
+    public static final class Builder {
+
+        private byte[] kinds = new byte[64];
+        private int[] offsets = new int[64];
+        private long[] spans = new long[64];
+        private int[] operands = new int[256];
+        private int size = 0;
+        private int length = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> pool = new HashMap<>();
+        private int[] fields = new int[16];
+        private int[] methods = new int[16];
+        private int fieldCount = 0;
+        private int methodCount = 0;
+
+        public Builder() {
+            node(SOURCE, -1, 0);
+        }
+
+        /**
+         * Adds a field or method to the source.
+         */
+        public void add(Ast ast) {
+            int node = encode(ast);
+            if (ast instanceof Ast.Field) {
+                if (fieldCount == fields.length) {
+                    fields = Arrays.copyOf(fields, 2 * fieldCount);
+                }
+                fields[fieldCount++] = node;
+            } else {
+                if (methodCount == methods.length) {
+                    methods = Arrays.copyOf(methods, 2 * methodCount);
+                }
+                methods[methodCount++] = node;
+            }
+        }
+
+        /**
+         * Returns the encoded source with the given span. The operands of the
+         * source are stored last, since the number of fields and methods is
+         * only known at the end.
+         */
+        public FlatAst build(int start, int end) {
+            spans[0] = span(start, end);
+            offsets[0] = length;
+            int operand = reserve(2 + fieldCount + methodCount);
+            operands[operand++] = fieldCount;
+            System.arraycopy(fields, 0, operands, operand, fieldCount);
+            operand += fieldCount;
+            operands[operand++] = methodCount;
+            System.arraycopy(methods, 0, operands, operand, methodCount);
+            return new FlatAst(this);
+        }
+
+        private int encode(Ast ast) {
+            if (ast instanceof Ast.Field) {
+                Ast.Field field = (Ast.Field) ast;
+                int node = node(FIELD, ast, 4);
+                set(node, 0, constant(field.getName()));
+                set(node, 1, field.getTypeName() == null ? -1 : constant(field.getTypeName()));
+                set(node, 2, field.getConstant() ? 1 : 0);
+                set(node, 3, encode(field.getValue()));
+                return node;
+            } else if (ast instanceof Ast.Method) {
+                Ast.Method method = (Ast.Method) ast;
+                int parameters = method.getParameters().size();
+                int node = node(METHOD, ast, 5 + 2 * parameters + method.getStatements().size());
+                set(node, 0, constant(method.getName()));
+                set(node, 1, method.getReturnTypeName().map(this::constant).orElse(-1));
+                set(node, 2, parameters);
+                set(node, 3 + parameters, method.getParameterTypeNames().size());
+                for (int i = 0; i < parameters; i++) {
+                    set(node, 3 + i, constant(method.getParameters().get(i)));
+                    set(node, 4 + parameters + i, constant(method.getParameterTypeNames().get(i)));
+                }
+                encode(node, 4 + 2 * parameters, method.getStatements());
+                return node;
+            } else if (ast instanceof Ast.Statement.Expression) {
+                int node = node(EXPRESSION, ast, 1);
+                set(node, 0, encode(((Ast.Statement.Expression) ast).getExpression()));
+                return node;
+            } else if (ast instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+                int node = node(DECLARATION, ast, 3);
+                set(node, 0, constant(declaration.getName()));
+                set(node, 1, declaration.getTypeName().map(this::constant).orElse(-1));
+                set(node, 2, encode(declaration.getValue()));
+                return node;
+            } else if (ast instanceof Ast.Statement.Assignment) {
+                Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+                int node = node(ASSIGNMENT, ast, 2);
+                set(node, 0, encode(assignment.getReceiver()));
+                set(node, 1, encode(assignment.getValue()));
+                return node;
+            } else if (ast instanceof Ast.Statement.If) {
+                Ast.Statement.If statement = (Ast.Statement.If) ast;
+                int then = statement.getThenStatements().size();
+                int node = node(IF, ast, 3 + then + statement.getElseStatements().size());
+                set(node, 0, encode(statement.getCondition()));
+                encode(node, 1, statement.getThenStatements());
+                encode(node, 2 + then, statement.getElseStatements());
+                return node;
+            } else if (ast instanceof Ast.Statement.For) {
+                Ast.Statement.For statement = (Ast.Statement.For) ast;
+                int node = node(FOR, ast, 4 + statement.getStatements().size());
+                set(node, 0, encode(statement.getInitialization()));
+                set(node, 1, encode(statement.getCondition()));
+                set(node, 2, encode(statement.getIncrement()));
+                encode(node, 3, statement.getStatements());
+                return node;
+            } else if (ast instanceof Ast.Statement.While) {
+                Ast.Statement.While statement = (Ast.Statement.While) ast;
+                int node = node(WHILE, ast, 2 + statement.getStatements().size());
+                set(node, 0, encode(statement.getCondition()));
+                encode(node, 1, statement.getStatements());
+                return node;
+            } else if (ast instanceof Ast.Statement.Return) {
+                int node = node(RETURN, ast, 1);
+                set(node, 0, encode(((Ast.Statement.Return) ast).getValue()));
+                return node;
+            } else if (ast instanceof Ast.Statement.Error) {
+                int node = node(ERROR, ast, 1);
+                set(node, 0, constant(((Ast.Statement.Error) ast).getException()));
+                return node;
+            } else if (ast instanceof Ast.Expression.Literal) {
+                int node = node(LITERAL, ast, 1);
+                set(node, 0, constant(((Ast.Expression.Literal) ast).getLiteral()));
+                return node;
+            } else if (ast instanceof Ast.Expression.Group) {
+                int node = node(GROUP, ast, 1);
+                set(node, 0, encode(((Ast.Expression.Group) ast).getExpression()));
+                return node;
+            } else if (ast instanceof Ast.Expression.Binary) {
+                Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                int node = node(BINARY, ast, 3);
+                set(node, 0, constant(binary.getOperator()));
+                set(node, 1, encode(binary.getLeft()));
+                set(node, 2, encode(binary.getRight()));
+                return node;
+            } else if (ast instanceof Ast.Expression.Access) {
+                Ast.Expression.Access access = (Ast.Expression.Access) ast;
+                int node = node(ACCESS, ast, 2);
+                set(node, 0, encode(access.getReceiver()));
+                set(node, 1, constant(access.getName()));
+                return node;
+            } else if (ast instanceof Ast.Expression.Function) {
+                Ast.Expression.Function function = (Ast.Expression.Function) ast;
+                int node = node(FUNCTION, ast, 3 + function.getArguments().size());
+                set(node, 0, encode(function.getReceiver()));
+                set(node, 1, constant(function.getName()));
+                encode(node, 2, function.getArguments());
+                return node;
+            } else if (ast == null) {
+                return -1;
+            }
+            throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+        }
+
+        private int encode(Optional<? extends Ast> ast) {
+            return ast.isPresent() ? encode(ast.get()) : -1;
+        }
+
+        private void encode(int node, int i, List<? extends Ast> list) {
+            set(node, i, list.size());
+            for (int j = 0; j < list.size(); j++) {
+                set(node, i + 1 + j, encode(list.get(j)));
+            }
+        }
+
+        /**
+         * Adds a node with the given number of operands, which are reserved
+         * before any of its children are added.
+         */
+        private int node(byte kind, Ast ast, int count) {
+            return node(kind, span(ast.getStart(), ast.getEnd()), count);
+        }
+
+        private static long span(int start, int end) {
+            return (long) start << 32 | end & 0xFFFFFFFFL;
+        }
+
+        private int node(byte kind, long span, int count) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * size);
+                offsets = Arrays.copyOf(offsets, 2 * size);
+                spans = Arrays.copyOf(spans, 2 * size);
+            }
+            kinds[size] = kind;
+            spans[size] = span;
+            offsets[size] = reserve(count);
+            return size++;
+        }
+
+        private int reserve(int count) {
+            while (length + count > operands.length) {
+                operands = Arrays.copyOf(operands, 2 * operands.length);
+            }
+            length += count;
+            return length - count;
+        }
+
+        private void set(int node, int i, int operand) {
+            operands[offsets[node] + i] = operand;
+        }
+
+        private int constant(Object value) {
+            Integer constant = pool.get(value);
+            if (constant == null) {
+                constant = constants.size();
+                constants.add(value);
+                pool.put(value, constant);
+            }
+            return constant;
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package plc.project;
+
+/**
+ * The local variables of an executing method or block, stored in the slots
+ * assigned by the {@link Resolver}. A variable is found by its depth, the
+ * number of parent frames to follow, and its slot in that frame, without
+ * looking up its name as in a {@link Scope}.
+ */
+public final class Frame {
+
+    private final Frame parent;
+    private final Environment.PlcObject[] slots;
+
+    public Frame(Frame parent, int size) {
+        this.parent = parent;
+        this.slots = new Environment.PlcObject[size];
+    }
+
+    public Frame getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the value in the given slot, or null if the variable has not
+     * been declared yet.
+     */
+    public Environment.PlcObject get(int depth, int slot) {
+        return frame(depth).slots[slot];
+    }
+
+    public void set(int depth, int slot, Environment.PlcObject value) {
+        frame(depth).slots[slot] = value;
+    }
+
+    private Frame frame(int depth) {
+        Frame frame = this;
+        for (int i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+        return frame;
+    }
+
+}
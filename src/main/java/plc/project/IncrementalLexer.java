@@ -0,0 +1,266 @@
+package plc.project;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maintains the tokens of a source which is edited in place, re-lexing only
+ * the region damaged by each edit.
+ *
+ * Lexing from the start of a token depends only on the characters from that
+ * point onwards, so an edit restarts at the first token touching it and stops
+ * as soon as a token starts at the (shifted) start of an old token after the
+ * edit, since everything from there on is unchanged. The damaged region is
+ * lexed in windows ending just after a newline, which is always a token
+ * boundary (see {@link ParallelLexer}), so the work done is proportional to
+ * the damage rather than the size of the source.
+ *
+ * Tokens are kept as a list of pieces of earlier token lists, each with an
+ * index shift, so tokens after an edit are neither copied nor re-lexed. The
+ * pieces are flattened once there are more than {@link #MAX_PIECES}.
+ */
+public final class IncrementalLexer {
+
+    private static final int WINDOW = 1024;
+    private static final int MAX_PIECES = 1024;
+
+    private final StringBuilder text;
+    private Tokens tokens;
+    private int length;
+    // [damageStart, damageEnd) of the last lexed source is now damageLength
+    // characters of text which have not been lexed, or -1 if there are none
+    private int damageStart = -1;
+    private int damageEnd;
+    private int damageLength;
+
+    public IncrementalLexer(String source) {
+        this(source, new TableLexer(source).lex());
+    }
+
+    /**
+     * Creates an incremental lexer from the tokens of a previous lex of the
+     * source, which must not be modified afterwards.
+     */
+    public IncrementalLexer(String source, List<Token> tokens) {
+        this.text = new StringBuilder(source);
+        this.tokens = new Tokens(List.of(new Piece(tokens, 0, tokens.size(), 0)));
+        this.length = source.length();
+    }
+
+    public String getSource() {
+        return text.toString();
+    }
+
+    /**
+     * Returns the current tokens, which are not affected by later edits. If
+     * an earlier edit failed to lex, the damaged region is lexed again.
+     */
+    public List<Token> getTokens() {
+        if (damageStart != -1) {
+            relex(damageStart, damageEnd, damageLength);
+        }
+        return tokens;
+    }
+
+    /**
+     * Replaces {@code removed} characters at offset with inserted and returns
+     * the updated tokens.
+     *
+     * If the edited region fails to lex the exception is rethrown, but the
+     * edit is still applied. The damaged region is then kept in terms of the
+     * last tokens which did lex and merged with later edits, so a source which
+     * is temporarily invalid (such as an unterminated string while typing)
+     * does not require lexing everything again.
+     */
+    public List<Token> edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid edit " + offset + "+" + removed + " of " + text.length());
+        }
+        text.replace(offset, offset + removed, inserted);
+        int start = offset;
+        int end = offset + removed;
+        if (damageStart != -1) {
+            // map the edit back to the last tokens, through the damaged region
+            int damaged = damageStart + damageLength;
+            start = Math.min(start, damageStart);
+            end = end <= damaged ? damageEnd : end - damaged + damageEnd;
+        }
+        return relex(start, end, text.length() - length + end - start);
+    }
+
+    /**
+     * Replaces the tokens of {@code [start, end)} of the last source which was
+     * lexed, which is now {@code replaced} characters of the current text.
+     */
+    private List<Token> relex(int start, int end, int replaced) {
+        damageStart = start;
+        damageEnd = end;
+        damageLength = replaced;
+        int delta = replaced - (end - start);
+        // a token ending exactly at the start may be extended by the edit
+        int first = tokens.search(start);
+        int restart = first < tokens.size() ? Math.min(tokens.index(first), start) : start;
+        List<Token> relexed = new ArrayList<>();
+        int next = relex(tokens, first, restart, end, delta, relexed);
+        List<Piece> pieces = new ArrayList<>();
+        tokens.slice(pieces, 0, first, 0);
+        if (!relexed.isEmpty()) {
+            pieces.add(new Piece(relexed, 0, relexed.size(), 0));
+        }
+        tokens.slice(pieces, next, tokens.size(), delta);
+        if (pieces.size() > MAX_PIECES) {
+            List<Token> flattened = new ArrayList<>(new Tokens(pieces));
+            pieces = List.of(new Piece(flattened, 0, flattened.size(), 0));
+        }
+        tokens = new Tokens(pieces);
+        length = text.length();
+        damageStart = -1;
+        return tokens;
+    }
+
+    /**
+     * Lexes from start, adding tokens to relexed until one matches an old
+     * token starting after end (the end of the removed region), and returns
+     * the index of that old token.
+     */
+    private int relex(Tokens previous, int next, int start, int end, int delta, List<Token> relexed) {
+        int base = start;
+        while (base < text.length()) {
+            int newline = text.indexOf("\n", Math.min(base + WINDOW, text.length()));
+            int limit = newline == -1 ? text.length() : newline + 1;
+            TokenSource source = new TableLexer(text.substring(base, limit)).tokens();
+            for (Token token = next(source, base); token != null; token = next(source, base)) {
+                int index = base + token.getIndex();
+                while (next < previous.size() && (previous.index(next) < end || previous.index(next) + delta < index)) {
+                    next++;
+                }
+                if (next < previous.size() && previous.index(next) + delta == index) {
+                    return next;
+                }
+                relexed.add(token.shift(base));
+            }
+            base = limit;
+        }
+        return previous.size();
+    }
+
+    /**
+     * Returns the next token of a window starting at base, with the index of
+     * any exception adjusted to the whole text.
+     */
+    private static Token next(TokenSource source, int base) {
+        try {
+            return source.next();
+        } catch (ParseException e) {
+            throw new ParseException(e.getMessage(), base + e.getIndex());
+        }
+    }
+
+    /**
+     * A range of a token list whose indices are shifted by {@code shift}.
+     */
+    private static final class Piece {
+
+        private final List<Token> tokens;
+        private final int from;
+        private final int to;
+        private final int shift;
+
+        private Piece(List<Token> tokens, int from, int to, int shift) {
+            this.tokens = tokens;
+            this.from = from;
+            this.to = to;
+            this.shift = shift;
+        }
+
+    }
+
+    /**
+     * An immutable view of the tokens in a list of pieces, shifting each token
+     * as it is accessed.
+     */
+    private static final class Tokens extends AbstractList<Token> {
+
+        private final List<Piece> pieces;
+        private final int[] starts;
+
+        private Tokens(List<Piece> pieces) {
+            this.pieces = pieces;
+            this.starts = new int[pieces.size() + 1];
+            for (int i = 0; i < pieces.size(); i++) {
+                starts[i + 1] = starts[i] + pieces.get(i).to - pieces.get(i).from;
+            }
+        }
+
+        @Override
+        public Token get(int i) {
+            int p = locate(i);
+            return token(p, i).shift(pieces.get(p).shift);
+        }
+
+        @Override
+        public int size() {
+            return starts[pieces.size()];
+        }
+
+        /**
+         * Returns the index of the i-th token without shifting it.
+         */
+        private int index(int i) {
+            int p = locate(i);
+            return token(p, i).getIndex() + pieces.get(p).shift;
+        }
+
+        private Token token(int p, int i) {
+            Piece piece = pieces.get(p);
+            return piece.tokens.get(piece.from + i - starts[p]);
+        }
+
+        /**
+         * Returns the piece containing the i-th token. Pieces are only empty
+         * when there are no tokens, so starts is strictly increasing.
+         */
+        private int locate(int i) {
+            if (i < 0 || i >= size()) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            int p = Arrays.binarySearch(starts, 0, pieces.size(), i);
+            return p < 0 ? -p - 2 : p;
+        }
+
+        /**
+         * Returns the first token which ends at or after offset.
+         */
+        private int search(int offset) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (index(middle) + token(locate(middle), middle).getLength() < offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Adds the pieces covering tokens [from, to) to out, shifted by delta.
+         */
+        private void slice(List<Piece> out, int from, int to, int delta) {
+            for (int p = 0; p < pieces.size(); p++) {
+                Piece piece = pieces.get(p);
+                int start = Math.max(from, starts[p]);
+                int end = Math.min(to, starts[p + 1]);
+                if (start < end) {
+                    out.add(new Piece(piece.tokens, piece.from + start - starts[p], piece.from + end - starts[p], piece.shift + delta));
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,205 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maintains the {@link Ast.Source} of a source which is edited in place,
+ * re-parsing only the fields and methods affected by each edit and reusing
+ * every other {@link Ast.Field} and {@link Ast.Method} by reference.
+ *
+ * Tokens are maintained by an {@link IncrementalLexer}, and the index of the
+ * first token of each member is kept alongside the source. A member is parsed
+ * from its own tokens only, so members which end before the edit are kept.
+ * Parsing restarts at the first member which may end at or after the edit and
+ * stops once a member would start at the (shifted) start of an old member
+ * after the edit, which is the same as the old member since the tokens from
+ * there on are the same as before.
+ *
+ * Reused members are never modified, so they keep the spans of the text
+ * they were parsed from, and sources returned earlier stay valid. The start
+ * of each member in the current text is kept in a side table instead, see
+ * {@link #getShift(int)}.
+ */
+public final class IncrementalParser {
+
+    private final IncrementalLexer lexer;
+    private Ast.Source source;
+    private int[] starts;
+
+    public IncrementalParser(String text) {
+        this.lexer = new IncrementalLexer(text);
+        reparse();
+    }
+
+    public String getText() {
+        return lexer.getSource();
+    }
+
+    public List<Token> getTokens() {
+        return lexer.getTokens();
+    }
+
+    /**
+     * Returns the current source. If the last edit failed to parse, the whole
+     * source is parsed again.
+     */
+    public Ast.Source getSource() throws ParseException {
+        if (source == null) {
+            reparse();
+        }
+        return source;
+    }
+
+    /**
+     * Returns the offset to add to the spans of the given member of the
+     * current source and its children, where members are numbered from the
+     * first field to the last method. This is zero for members parsed from
+     * the current text, and the total length of the edits since for members
+     * reused after them.
+     */
+    public int getShift(int member) throws ParseException {
+        Ast.Source current = getSource();
+        int fields = current.getFields().size();
+        Ast ast = member < fields ? current.getFields().get(member) : current.getMethods().get(member - fields);
+        return starts[member] - ast.getStart();
+    }
+
+    /**
+     * Replaces {@code removed} characters at offset with inserted and returns
+     * the updated source. If the source fails to lex or parse, the exception
+     * is the same as for a full parse and the edit is still applied.
+     */
+    public Ast.Source edit(int offset, int removed, String inserted) throws ParseException {
+        if (source == null) {
+            lexer.edit(offset, removed, inserted);
+            return getSource();
+        }
+        Ast.Source previous = source;
+        int[] previousStarts = starts;
+        source = null;
+        List<Token> tokens = lexer.edit(offset, removed, inserted);
+        int members = previousStarts.length;
+        // members only depend on their own tokens, which end before the next
+        // member starts, so skip every member followed by one before the edit
+        int first = 0;
+        while (first < members - 1 && previousStarts[first + 1] < offset) {
+            first++;
+        }
+        // an edit before the first member may add tokens before it
+        int start = first < members ? Math.min(offset, previousStarts[first]) : 0;
+        List<Ast.Field> fields = new ArrayList<>(previous.getFields().subList(0, Math.min(first, previous.getFields().size())));
+        List<Ast.Method> methods = new ArrayList<>(previous.getMethods().subList(0, Math.max(0, first - previous.getFields().size())));
+        int[] updated = Arrays.copyOf(previousStarts, members + 16);
+        int count = first;
+        try {
+            Parser parser = new Parser(tokens.subList(search(tokens, start), tokens.size()));
+            int delta = inserted.length() - removed;
+            int next = first;
+            while (parser.hasNext()) {
+                int index = parser.getIndex();
+                while (next < members && (previousStarts[next] < offset + removed || previousStarts[next] + delta < index)) {
+                    next++;
+                }
+                if (next < members && previousStarts[next] + delta == index) {
+                    break;
+                }
+                if (count == updated.length) {
+                    updated = Arrays.copyOf(updated, 2 * count);
+                }
+                updated[count++] = index;
+                parseMember(parser, fields, methods);
+            }
+            if (!parser.hasNext()) {
+                next = members;
+            }
+            int reused = next;
+            if (reused < previous.getFields().size() && !methods.isEmpty()) {
+                // the reused fields are now after a method
+                throw new ParseException("Neither LET nor DEF", previousStarts[reused] + delta);
+            }
+            int split = previous.getFields().size();
+            fields.addAll(previous.getFields().subList(Math.min(reused, split), split));
+            methods.addAll(previous.getMethods().subList(Math.max(reused, split) - split, previous.getMethods().size()));
+            updated = Arrays.copyOf(updated, count + members - reused);
+            for (int i = reused; i < members; i++) {
+                updated[count++] = previousStarts[i] + delta;
+            }
+        } catch (ParseException e) {
+            // parse from scratch so the exception is the same as for a full parse
+            reparse();
+            return source;
+        }
+        source = span(new Ast.Source(fields, methods), tokens);
+        starts = updated;
+        return source;
+    }
+
+    /**
+     * Parses the whole source, recording the start of each member.
+     */
+    private void reparse() throws ParseException {
+        List<Token> tokens = lexer.getTokens();
+        Parser parser = new Parser(tokens);
+        List<Ast.Field> fields = new ArrayList<>();
+        List<Ast.Method> methods = new ArrayList<>();
+        int[] updated = new int[16];
+        int count = 0;
+        while (parser.hasNext()) {
+            if (count == updated.length) {
+                updated = Arrays.copyOf(updated, 2 * count);
+            }
+            updated[count++] = parser.getIndex();
+            parseMember(parser, fields, methods);
+        }
+        source = span(new Ast.Source(fields, methods), tokens);
+        starts = Arrays.copyOf(updated, count);
+    }
+
+    /**
+     * Parses the next field or method as in {@link Parser#parseSource()},
+     * where fields are only allowed before the first method.
+     */
+    private static void parseMember(Parser parser, List<Ast.Field> fields, List<Ast.Method> methods) throws ParseException {
+        if (parser.peek("LET") && methods.isEmpty()) {
+            fields.add(parser.parseField());
+        } else if (parser.peek("DEF")) {
+            methods.add(parser.parseMethod());
+        } else {
+            throw new ParseException("Neither LET nor DEF", parser.getIndex());
+        }
+    }
+
+    /**
+     * Sets the span of the source from the first to the last token, as in
+     * {@link Parser#parseSource()}.
+     */
+    private static Ast.Source span(Ast.Source source, List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            source.setSpan(0, 0);
+        } else {
+            Token last = tokens.get(tokens.size() - 1);
+            source.setSpan(tokens.get(0).getIndex(), last.getIndex() + last.getLength());
+        }
+        return source;
+    }
+
+    /**
+     * Returns the position of the first token with an index of at least index.
+     */
+    private static int search(List<Token> tokens, int index) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens.get(middle).getIndex() < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
@@ -12,6 +12,14 @@ import java.math.BigDecimal;
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
+    private Frame frame = null;
+    private boolean longArithmetic = true;
+    private int methods = 0;
+    /**
+     * The value of the last executed RETURN, which is set until the method
+     * returns and stops the execution of the enclosing statements.
+     */
+    private Environment.PlcObject returned = null;
 
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
@@ -43,6 +51,15 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return scope;
     }
 
+    /**
+     * Sets whether Integers which fit in a long are computed on longs, which
+     * is the default, or always on {@link BigInteger}s. The results are the
+     * same either way.
+     */
+    public void setLongArithmetic(boolean longArithmetic) {
+        this.longArithmetic = longArithmetic;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
         for (int i = 0; i<ast.getFields().size();i++){
@@ -85,24 +102,40 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Method ast) {
+        if (ast.getFrameSize() >= 0) {
+            scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
+                Frame frameHold = frame;
+                frame = ast.getFrameSize() > 0 ? new Frame(null, ast.getFrameSize()) : null;
+                methods++;
+                try {
+                    for (int i = 0; i < ast.getParameters().size(); i++) {
+                        frame.set(0, i, args.get(i));
+                    }
+                    execute(ast.getStatements());
+                    return complete();
+                } finally {
+                    methods--;
+                    frame = frameHold;
+                }
+            });
+            return Environment.NIL;
+        }
         scope.defineFunction(ast.getName(), ast.getParameters().size(), args-> {
 
                     Scope scopeHold = scope;
                     scope = new Scope(scope);
+                    methods++;
                     try {
 
                         for (int i = 0; i < ast.getParameters().size(); i++) {
                             scope.defineVariable(ast.getParameters().get(i), true, args.get(i));
                         }
-                        for (int i = 0; i < ast.getStatements().size(); i++) {
-                            visit(ast.getStatements().get(i));
-                        }
-                    } catch (Return returnException) {
-                        return returnException.value;
+                        execute(ast.getStatements());
+                        return complete();
                     } finally {
+                        methods--;
                         scope = scopeHold;
                     }
-                    return Environment.NIL;
                 }
         );
         return Environment.NIL;
@@ -120,7 +153,16 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Declaration ast) {
-        if (ast.getValue().isPresent())
+        if (ast.getSlot() >= 0)
+        {
+            Environment.PlcObject value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
+            if (frame.get(0, ast.getSlot()) != null)
+            {
+                throw new RuntimeException("The variable " + ast.getName() + " is already defined in this scope.");
+            }
+            frame.set(0, ast.getSlot(), value);
+        }
+        else if (ast.getValue().isPresent())
         {
             scope.defineVariable(ast.getName(), false, visit(ast.getValue().get()));
         }
@@ -149,6 +191,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             Environment.PlcObject objectPLC = visit(recieveHold.getReceiver().get());
             objectPLC.setField(recieveHold.getName(), visit(ast.getValue()));
         }
+        else if (recieveHold.getSlot() >= 0)
+        {
+            frame.set(recieveHold.getDepth(), recieveHold.getSlot(), visit(ast.getValue()));
+        }
         else
         {
 
@@ -166,30 +212,24 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         boolean holdCondition = requireType(Boolean.class, visit(ast.getCondition()));
 
         Scope holdScopeStore = scope;
-        scope = new Scope(scope);
+        Frame holdFrameStore = frame;
+        enter(ast.getFrameSize());
 
         try
         {
             if (holdCondition)
             {
-                for (int i=0; i<ast.getThenStatements().size();i++)
-                {
-                    visit(ast.getThenStatements().get(i));
-                }
-
+                execute(ast.getThenStatements());
             }
             else
             {
-                for (int i=0;i<ast.getElseStatements().size();i++)
-                {
-
-                    visit(ast.getElseStatements().get(i));
-                }
+                execute(ast.getElseStatements());
             }
 
         }
         finally {
             scope = holdScopeStore;
+            frame = holdFrameStore;
         }
 //        throw new UnsupportedOperationException(); //TODO
 
@@ -200,17 +240,19 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     public Environment.PlcObject visit(Ast.Statement.For ast) {
 
         Scope holdScopeStore = scope;
+        Frame holdFrameStore = frame;
 
-        scope = new Scope(scope);
+        enter(ast.getFrameSize());
 
         try
         {
             visit(ast.getInitialization());
             while(requireType(Boolean.class, visit(ast.getCondition())))
             {
-                for (int i=0;i<ast.getStatements().size();i++)
+                execute(ast.getStatements());
+                if (returned != null)
                 {
-                    visit(ast.getStatements().get(i));
+                    break;
                 }
                 visit(ast.getIncrement());
             }
@@ -218,6 +260,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         finally
         {
             scope = holdScopeStore;
+            frame = holdFrameStore;
         }
 
 //        throw new UnsupportedOperationException(); //TODO
@@ -228,21 +271,24 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     public Environment.PlcObject visit(Ast.Statement.While ast) {
 
         Scope holdScopeStore = scope;
+        Frame holdFrameStore = frame;
 
-        scope = new Scope(scope);
+        enter(ast.getFrameSize());
 
         try
         {
             while (requireType(Boolean.class, visit(ast.getCondition())))
             {
-                for (int i=0;i<ast.getStatements().size();i++)
+                execute(ast.getStatements());
+                if (returned != null)
                 {
-                    visit(ast.getStatements().get(i));
+                    break;
                 }
             }
         }
         finally {
             scope = holdScopeStore;
+            frame = holdFrameStore;
         }
         return Environment.NIL;
 //        throw new UnsupportedOperationException(); //TODO
@@ -250,8 +296,11 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Return ast) {
-
-        throw new Return(visit(ast.getValue()));
+        if (methods == 0) {
+            throw new RuntimeException("Cannot return outside of a method.");
+        }
+        returned = visit(ast.getValue());
+        return returned;
 //        throw new UnsupportedOperationException(); //TODO
     }
 
@@ -262,7 +311,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             return Environment.NIL;
         }
 
-        return Environment.create(ast.getLiteral());
+        Environment.PlcObject object = ast.getObject();
+        if (object == null)
+        {
+            object = Environment.create(ast.getLiteral());
+            ast.setObject(object);
+        }
+        return object;
 
         //        throw new UnsupportedOperationException(); //TODO
     }
@@ -317,6 +372,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         Environment.PlcObject holdRight = visit(ast.getRight());
 
+        if (longArithmetic && holdLeft.isLong() && holdRight.isLong()) {
+            Environment.PlcObject result = evaluateLong(ast.getOperator(), holdLeft.getLong(), holdRight.getLong());
+            if (result != null) {
+                return result;
+            }
+        }
+
         if (ast.getOperator().equals("<")) {
             requireType(holdLeft.getValue().getClass(), holdRight);
             if (holdLeft.getValue() instanceof BigInteger) {
@@ -620,6 +682,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             return hasBeenReached.getValue();
         }
 
+        if (ast.getSlot() >= 0)
+        {
+            return frame.get(ast.getDepth(), ast.getSlot());
+        }
         hasBeenReached = scope.lookupVariable(ast.getName());
 
         return hasBeenReached.getValue();
@@ -670,16 +736,76 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * Enters a block, in a new frame if it has been resolved and declares
+     * variables or in a new scope if it has not been resolved.
      */
-    private static class Return extends RuntimeException {
+    private void enter(int frameSize) {
+        if (frameSize < 0) {
+            scope = new Scope(scope);
+        } else if (frameSize > 0) {
+            frame = new Frame(frame, frameSize);
+        }
+    }
 
-        private final Environment.PlcObject value;
+    /**
+     * Evaluates a binary operator on two Integers which fit in a long, with the
+     * same result as on {@link BigInteger}s. Returns null if the result does
+     * not fit in a long or is a division by zero, so that it is evaluated on
+     * {@link BigInteger}s instead.
+     */
+    private static Environment.PlcObject evaluateLong(String operator, long left, long right) {
+        switch (operator) {
+            case "<":
+                return Environment.create(left < right);
+            case "<=":
+                return Environment.create(left <= right);
+            case ">":
+                return Environment.create(left > right);
+            case ">=":
+                return Environment.create(left >= right);
+            case "==":
+                return Environment.create(left == right);
+            case "!=":
+                return Environment.create(left != right);
+            case "+": {
+                long result = left + right;
+                // overflows if both operands have a different sign than the result
+                return ((left ^ result) & (right ^ result)) < 0 ? null : Environment.createInteger(result);
+            }
+            case "-": {
+                long result = left - right;
+                return ((left ^ right) & (left ^ result)) < 0 ? null : Environment.createInteger(result);
+            }
+            case "*": {
+                long high = Math.multiplyHigh(left, right);
+                long result = left * right;
+                // fits if the high bits are only the sign extension of the result
+                return high == result >> 63 ? Environment.createInteger(result) : null;
+            }
+            case "/":
+                return right == 0 || left == Long.MIN_VALUE && right == -1 ? null : Environment.createInteger(left / right);
+            default:
+                return null;
+        }
+    }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+    /**
+     * Executes the given statements, stopping after a RETURN.
+     */
+    private void execute(List<Ast.Statement> statements) {
+        for (int i = 0; i < statements.size() && returned == null; i++) {
+            visit(statements.get(i));
         }
+    }
 
+    /**
+     * Returns the value of the RETURN which completed the current method, or
+     * NIL if it ran to the end, and clears it for the caller.
+     */
+    private Environment.PlcObject complete() {
+        Environment.PlcObject value = returned;
+        returned = null;
+        return value != null ? value : Environment.NIL;
     }
 
 }
@@ -1,6 +1,13 @@
 package plc.project;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -24,6 +31,14 @@ public final class Lexer {
         chars = new CharStream(input);
     }
 
+    public Lexer(Reader reader) {
+        chars = new CharStream(reader);
+    }
+
+    public Lexer(CharStream chars) {
+        this.chars = chars;
+    }
+
     /**
      * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
      * whitespace where appropriate.
@@ -51,6 +66,21 @@ public final class Lexer {
         //throw new UnsupportedOperationException(); //TODO
     }
 
+    /**
+     * Returns a {@link TokenSource} which lexes one token at a time as the
+     * parser requests them, skipping whitespace in the same way as {@link
+     * #lex()}. Unlike {@link #lex()}, tokens are never collected in a list.
+     */
+    public TokenSource tokens() {
+        return () -> {
+            while (peek("[ \b\n\r\t]")) {
+                match("[ \b\n\r\t]");
+                chars.skip();
+            }
+            return chars.has(0) ? lexToken() : null;
+        };
+    }
+
     /**
      * This method determines the type of the next token, delegating to the
      * appropriate lex method. As such, it is best for this method to not change
@@ -247,6 +277,25 @@ public final class Lexer {
         // throw new UnsupportedOperationException(); //TODO
     }
 
+    /**
+     * Returns the character denoted by the escape sequence {@code \\c}, where
+     * c is one of {@code [bnrt'"\\]}.
+     */
+    static char unescape(char c) {
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return c;
+        }
+    }
+
     public Token lexOperator() {
         // First, check for two-character operators like &&, ||, ==, !=, <=, >=.
         if (peek("&", "&") || peek("|", "|") || peek("=", "=") || peek("!", "=") || peek("<", "=") || peek(">", "=")) {
@@ -324,23 +373,79 @@ public final class Lexer {
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
      * ParseException} which is thrown.
+     *
+     * A stream may also be backed by a {@link Reader}, in which case only a
+     * sliding window of the input is held in {@link #buffer}. Everything before
+     * the start of the current token is discarded as the window slides, so
+     * memory is bounded by the longest token rather than the input size. All
+     * indices remain absolute offsets into the input.
      */
     public static final class CharStream {
 
+        private static final int BUFFER_SIZE = 8192;
+
         private final String input;
+        private final int end;
+        private final Reader reader;
+        private char[] buffer;
+        private int offset = 0; // absolute index of buffer[0]
+        private int limit = 0;  // number of chars read into buffer
+        private boolean eof = false;
+        private final Symbols symbols = new Symbols();
         private int index = 0;
         private int length = 0;
 
         public CharStream(String input) {
+            this(input, 0, input.length());
+        }
+
+        /**
+         * Creates a stream over {@code input[start, end)}. Indices are still
+         * relative to the whole input, which allows lexing a region of a
+         * larger source (such as in {@link ParallelLexer}).
+         */
+        public CharStream(String input, int start, int end) {
             this.input = input;
+            this.end = end;
+            this.reader = null;
+            this.index = start;
+        }
+
+        public CharStream(Reader reader) {
+            this(reader, BUFFER_SIZE);
+        }
+
+        public CharStream(ReadableByteChannel channel, Charset charset) {
+            this(Channels.newReader(channel, charset.newDecoder(), -1));
+        }
+
+        CharStream(Reader reader, int bufferSize) {
+            this.input = null;
+            this.end = -1;
+            this.reader = reader;
+            this.buffer = new char[bufferSize];
         }
 
         public boolean has(int offset) {
-            return index + offset < input.length();
+            if (input != null) {
+                return index + offset < end;
+            }
+            return index + offset < this.offset + limit || fill(index + offset);
         }
 
         public char get(int offset) {
-            return input.charAt(index + offset);
+            if (input != null) {
+                return input.charAt(index + offset);
+            }
+            return buffer[index + offset - this.offset];
+        }
+
+        /**
+         * Returns the current index of the stream, which is the index any
+         * {@link ParseException} should be thrown at.
+         */
+        public int getIndex() {
+            return index;
         }
 
         public void advance() {
@@ -352,10 +457,77 @@ public final class Lexer {
             length = 0;
         }
 
+        /**
+         * Emits a token for the chars since the last emit or skip. Identifiers
+         * and operators are interned through {@link #symbols}.
+         */
         public Token emit(Token.Type type) {
+            return emit(type, null);
+        }
+
+        /**
+         * Emits a token as in {@link #emit(Token.Type)}, with the value of its
+         * literal if it has been computed (see {@link Token#getValue()}).
+         */
+        public Token emit(Token.Type type, Object value) {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            boolean symbol = type == Token.Type.IDENTIFIER || type == Token.Type.OPERATOR;
+            if (input != null) {
+                if (symbol) {
+                    return new Token(type, input, start, index - start, start, symbols.intern(input, start, index - start));
+                }
+                return new Token(type, input, start, index - start, start, null, false, value);
+            } else if (symbol) {
+                String literal = symbols.intern(buffer, start - offset, index - start);
+                return new Token(type, literal, 0, literal.length(), start, literal);
+            }
+            String literal = new String(buffer, start - offset, index - start);
+            return new Token(type, literal, 0, literal.length(), start, literal, false, value);
+        }
+
+        /**
+         * Adds the chars since the last emit or skip to tokens instead of
+         * emitting a {@link Token}, which requires a string input.
+         */
+        public void emitPacked(Token.Type type, PackedTokens tokens) {
+            if (input == null) {
+                throw new IllegalStateException("Packed tokens require a string input.");
+            }
+            tokens.add(type, index - length, length);
+            skip();
+        }
+
+        /**
+         * Reads from {@link #reader} until the char at the absolute index
+         * {@code target} is buffered, returning false if the input ends first.
+         * Space is made by discarding chars before the current token, and the
+         * buffer only grows if a single token does not fit.
+         */
+        private boolean fill(int target) {
+            while (!eof && target >= offset + limit) {
+                if (limit == buffer.length) {
+                    int discard = index - length - offset;
+                    if (discard > 0) {
+                        System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+                        offset += discard;
+                        limit -= discard;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                }
+                try {
+                    int read = reader.read(buffer, limit, buffer.length - limit);
+                    if (read == -1) {
+                        eof = true;
+                    } else {
+                        limit += read;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return target < offset + limit;
         }
 
     }
@@ -0,0 +1,379 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Folds constant expressions and simplifies algebraic identities, returning
+ * the optimized node from each visit method. Nodes which do not change are
+ * returned as is, and rebuilt nodes keep the span and analyzer state of the
+ * nodes they replace, so the pass can run after the {@link Analyzer} (and
+ * before or after the {@link Resolver}) and before the {@link Interpreter} or
+ * {@link Generator}.
+ *
+ * Constant {@link Ast.Expression.Binary} nodes are evaluated by an {@link
+ * Interpreter}, so folding has exactly the semantics of evaluation. An
+ * expression which fails to evaluate, or whose value the {@link Analyzer}
+ * would not accept as a literal (such as an integer outside of the range of
+ * an int), is left as is to fail or be computed at runtime.
+ */
+public final class Optimizer implements Ast.Visitor<Ast> {
+
+    private static final BigInteger INT_MIN = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigInteger INT_MAX = BigInteger.valueOf(Integer.MAX_VALUE);
+
+    private final Interpreter interpreter = new Interpreter(null);
+    private int folded = 0;
+
+    /**
+     * Returns the number of expressions which have been folded or simplified.
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+        List<Ast.Field> fields = optimizeAll(ast.getFields());
+        List<Ast.Method> methods = optimizeAll(ast.getMethods());
+        if (fields == ast.getFields() && methods == ast.getMethods()) {
+            return ast;
+        }
+        return copy(ast, new Ast.Source(fields, methods));
+    }
+
+    @Override
+    public Ast visit(Ast.Field ast) {
+        Optional<Ast.Expression> value = optimize(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Field field = copy(ast, new Ast.Field(ast.getName(), ast.getTypeName(), ast.getConstant(), value));
+        try {
+            field.setVariable(ast.getVariable());
+        } catch (IllegalStateException ignored) {
+        }
+        return field;
+    }
+
+    @Override
+    public Ast visit(Ast.Method ast) {
+        List<Ast.Statement> statements = optimizeAll(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = copy(ast, new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements));
+        method.setFrameSize(ast.getFrameSize());
+        try {
+            method.setFunction(ast.getFunction());
+        } catch (IllegalStateException ignored) {
+        }
+        return method;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Expression ast) {
+        Ast.Expression expression = optimize(ast.getExpression());
+        return expression == ast.getExpression() ? ast : copy(ast, new Ast.Statement.Expression(expression));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Declaration ast) {
+        Optional<Ast.Expression> value = optimize(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Statement.Declaration declaration = copy(ast, new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), value));
+        declaration.setSlot(ast.getSlot());
+        try {
+            declaration.setVariable(ast.getVariable());
+        } catch (IllegalStateException ignored) {
+        }
+        return declaration;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Assignment ast) {
+        Ast.Expression receiver = optimize(ast.getReceiver());
+        Ast.Expression value = optimize(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return copy(ast, new Ast.Statement.Assignment(receiver, value));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.If ast) {
+        Ast.Expression condition = optimize(ast.getCondition());
+        List<Ast.Statement> thenStatements = optimizeAll(ast.getThenStatements());
+        List<Ast.Statement> elseStatements = optimizeAll(ast.getElseStatements());
+        if (condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        Ast.Statement.If statement = copy(ast, new Ast.Statement.If(condition, thenStatements, elseStatements));
+        statement.setFrameSize(ast.getFrameSize());
+        return statement;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.For ast) {
+        Ast.Statement initialization = optimize(ast.getInitialization());
+        Ast.Expression condition = optimize(ast.getCondition());
+        Ast.Statement increment = optimize(ast.getIncrement());
+        List<Ast.Statement> statements = optimizeAll(ast.getStatements());
+        if (initialization == ast.getInitialization() && condition == ast.getCondition()
+                && increment == ast.getIncrement() && statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Statement.For statement = copy(ast, new Ast.Statement.For(initialization, condition, increment, statements));
+        statement.setFrameSize(ast.getFrameSize());
+        return statement;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.While ast) {
+        Ast.Expression condition = optimize(ast.getCondition());
+        List<Ast.Statement> statements = optimizeAll(ast.getStatements());
+        if (condition == ast.getCondition() && statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Statement.While statement = copy(ast, new Ast.Statement.While(condition, statements));
+        statement.setFrameSize(ast.getFrameSize());
+        return statement;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Return ast) {
+        Ast.Expression value = optimize(ast.getValue());
+        return value == ast.getValue() ? ast : copy(ast, new Ast.Statement.Return(value));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Error ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    /**
+     * A group only affects parsing, so it is removed once the expression it
+     * contains is no longer a binary expression.
+     */
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+        Ast.Expression expression = optimize(ast.getExpression());
+        if (!(expression instanceof Ast.Expression.Binary)) {
+            folded++;
+            return expression;
+        } else if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expression.Group group = copy(ast, new Ast.Expression.Group(expression));
+        setType(group, typeOf(ast));
+        return group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+        Ast.Expression left = optimize(ast.getLeft());
+        Ast.Expression right = optimize(ast.getRight());
+        Ast.Expression.Binary binary = ast;
+        if (left != ast.getLeft() || right != ast.getRight()) {
+            binary = copy(ast, new Ast.Expression.Binary(ast.getOperator(), left, right));
+            setType(binary, typeOf(ast));
+        }
+        Ast.Expression optimized = left instanceof Ast.Expression.Literal && right instanceof Ast.Expression.Literal
+                ? fold(binary)
+                : simplify(binary);
+        if (optimized != binary) {
+            folded++;
+        }
+        return optimized;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+        Optional<Ast.Expression> receiver = optimize(ast.getReceiver());
+        if (receiver == ast.getReceiver()) {
+            return ast;
+        }
+        Ast.Expression.Access access = copy(ast, new Ast.Expression.Access(receiver, ast.getName()));
+        access.setSlot(ast.getDepth(), ast.getSlot());
+        try {
+            access.setVariable(ast.getVariable());
+        } catch (IllegalStateException ignored) {
+        }
+        return access;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Function ast) {
+        Optional<Ast.Expression> receiver = optimize(ast.getReceiver());
+        List<Ast.Expression> arguments = optimizeAll(ast.getArguments());
+        if (receiver == ast.getReceiver() && arguments == ast.getArguments()) {
+            return ast;
+        }
+        Ast.Expression.Function function = copy(ast, new Ast.Expression.Function(receiver, ast.getName(), arguments));
+        try {
+            function.setFunction(ast.getFunction());
+        } catch (IllegalStateException ignored) {
+        }
+        return function;
+    }
+
+    /**
+     * Evaluates a binary expression of literals into a literal, or returns it
+     * as is if it cannot be folded.
+     */
+    private Ast.Expression fold(Ast.Expression.Binary ast) {
+        if (!isLiteral(((Ast.Expression.Literal) ast.getLeft()).getLiteral())
+                || !isLiteral(((Ast.Expression.Literal) ast.getRight()).getLiteral())) {
+            return ast;
+        }
+        Object value;
+        try {
+            value = interpreter.visit(ast).getValue();
+        } catch (RuntimeException e) {
+            return ast;
+        }
+        if (!isLiteral(value)) {
+            return ast;
+        }
+        Ast.Expression.Literal literal = copy(ast, new Ast.Expression.Literal(value));
+        setType(literal, typeOf(ast));
+        return literal;
+    }
+
+    /**
+     * Simplifies a binary expression with one constant operand. An operand is
+     * only removed if it is not evaluated or if the {@link Analyzer} has typed
+     * the other operand so that removing it cannot change the value or skip an
+     * error. Identities which change the scale of a decimal, such as {@code
+     * x * 1.0}, are not simplified.
+     */
+    private Ast.Expression simplify(Ast.Expression.Binary ast) {
+        Object left = ast.getLeft() instanceof Ast.Expression.Literal ? ((Ast.Expression.Literal) ast.getLeft()).getLiteral() : null;
+        Object right = ast.getRight() instanceof Ast.Expression.Literal ? ((Ast.Expression.Literal) ast.getRight()).getLiteral() : null;
+        switch (ast.getOperator()) {
+            case "&&":
+                if (Boolean.FALSE.equals(left)) {
+                    return ast.getLeft();
+                } else if (Boolean.TRUE.equals(left) && typeOf(ast.getRight()) == Environment.Type.BOOLEAN) {
+                    return ast.getRight();
+                }
+                break;
+            case "||":
+                // FALSE || x negates x when interpreted, so only TRUE is simplified
+                if (Boolean.TRUE.equals(left)) {
+                    return ast.getLeft();
+                }
+                break;
+            case "+":
+                if (BigInteger.ZERO.equals(right) && typeOf(ast.getLeft()) == Environment.Type.INTEGER) {
+                    return ast.getLeft();
+                } else if (BigInteger.ZERO.equals(left) && typeOf(ast.getRight()) == Environment.Type.INTEGER) {
+                    return ast.getRight();
+                }
+                break;
+            case "-":
+                if (BigInteger.ZERO.equals(right) && typeOf(ast.getLeft()) == Environment.Type.INTEGER) {
+                    return ast.getLeft();
+                }
+                break;
+            case "*":
+                if (BigInteger.ONE.equals(right) && typeOf(ast.getLeft()) == Environment.Type.INTEGER) {
+                    return ast.getLeft();
+                } else if (BigInteger.ONE.equals(left) && typeOf(ast.getRight()) == Environment.Type.INTEGER) {
+                    return ast.getRight();
+                }
+                break;
+            case "/":
+                if (BigInteger.ONE.equals(right) && typeOf(ast.getLeft()) == Environment.Type.INTEGER) {
+                    return ast.getLeft();
+                } else if (right instanceof BigDecimal && ((BigDecimal) right).compareTo(BigDecimal.ONE) == 0
+                        && typeOf(ast.getLeft()) == Environment.Type.DECIMAL) {
+                    // the quotient keeps the scale of the dividend
+                    return ast.getLeft();
+                }
+                break;
+        }
+        return ast;
+    }
+
+    /**
+     * Returns true if the value is one the {@link Analyzer} accepts for a
+     * literal, except for nil.
+     */
+    private static boolean isLiteral(Object value) {
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).compareTo(INT_MIN) >= 0 && ((BigInteger) value).compareTo(INT_MAX) <= 0;
+        }
+        return value instanceof Boolean || value instanceof BigDecimal || value instanceof String;
+    }
+
+    /**
+     * Returns the type given by the {@link Analyzer}, or null if the
+     * expression has not been analyzed.
+     */
+    private static Environment.Type typeOf(Ast.Expression ast) {
+        try {
+            return ast.getType();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static void setType(Ast.Expression ast, Environment.Type type) {
+        if (type == null) {
+            return;
+        } else if (ast instanceof Ast.Expression.Literal) {
+            ((Ast.Expression.Literal) ast).setType(type);
+        } else if (ast instanceof Ast.Expression.Group) {
+            ((Ast.Expression.Group) ast).setType(type);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            ((Ast.Expression.Binary) ast).setType(type);
+        }
+    }
+
+    private static <T extends Ast> T copy(Ast from, T to) {
+        to.setSpan(from.getStart(), from.getEnd());
+        return to;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> T optimize(T ast) {
+        return ast == null ? null : (T) ast.accept(this);
+    }
+
+    private <T extends Ast> Optional<T> optimize(Optional<T> ast) {
+        if (!ast.isPresent()) {
+            return ast;
+        }
+        T optimized = optimize(ast.get());
+        return optimized == ast.get() ? ast : Optional.of(optimized);
+    }
+
+    /**
+     * Returns the list itself if none of its elements change.
+     */
+    private <T extends Ast> List<T> optimizeAll(List<T> asts) {
+        List<T> optimized = null;
+        for (int i = 0; i < asts.size(); i++) {
+            T ast = optimize(asts.get(i));
+            if (optimized == null && ast != asts.get(i)) {
+                optimized = new ArrayList<>(asts.subList(0, i));
+            }
+            if (optimized != null) {
+                optimized.add(ast);
+            }
+        }
+        return optimized == null ? asts : optimized;
+    }
+
+}
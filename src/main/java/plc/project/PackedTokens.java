@@ -0,0 +1,96 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A compact token list for a source string, stored as parallel arrays of
+ * types, offsets and lengths instead of one {@link Token} object per token.
+ * Each token takes 9 bytes, without object headers or references, and the
+ * arrays grow geometrically as tokens are added.
+ *
+ * The offset of a token is also its index, as for source-backed {@link
+ * Token}s. Literals are only materialized by {@link #getLiteral(int)}, where
+ * identifiers and operators are interned through {@link Symbols}.
+ */
+public final class PackedTokens {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final String source;
+    private final Symbols symbols = new Symbols();
+    private byte[] types = new byte[16];
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int size = 0;
+
+    public PackedTokens(String source) {
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a token for {@code source[offset, offset + length)}.
+     */
+    public void add(Token.Type type, int offset, int length) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    public Token.Type getType(int i) {
+        return TYPES[types[check(i)]];
+    }
+
+    public int getIndex(int i) {
+        return offsets[check(i)];
+    }
+
+    public int getLength(int i) {
+        return lengths[check(i)];
+    }
+
+    public String getLiteral(int i) {
+        check(i);
+        if (types[i] == Token.Type.IDENTIFIER.ordinal() || types[i] == Token.Type.OPERATOR.ordinal()) {
+            return symbols.intern(source, offsets[i], lengths[i]);
+        }
+        return source.substring(offsets[i], offsets[i] + lengths[i]);
+    }
+
+    /**
+     * Returns true if the literal is equal to value, comparing against the
+     * source directly as in {@link Token#literalEquals(String)}.
+     */
+    public boolean literalEquals(int i, String value) {
+        check(i);
+        return lengths[i] == value.length() && source.regionMatches(offsets[i], value, 0, lengths[i]);
+    }
+
+    /**
+     * Returns the i-th token as a {@link Token}.
+     */
+    public Token get(int i) {
+        return new Token(getType(i), source, offsets[i], lengths[i]);
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("No token at " + i + ".");
+        }
+        return i;
+    }
+
+}
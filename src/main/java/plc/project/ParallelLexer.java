@@ -0,0 +1,100 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lexes large inputs in parallel by splitting them into chunks which are
+ * lexed with {@link TableLexer} on a {@link ForkJoinPool}.
+ *
+ * Chunks are split just after a newline. Neither string nor character
+ * literals may contain a newline and a newline is never part of any other
+ * token, so lexing always restarts in the same state after one. Ending each
+ * chunk after the newline (rather than before) means a literal left open on
+ * that line fails with the same message as in a sequential lex. The result is
+ * therefore identical to {@link TableLexer#lex()}, including which {@link
+ * ParseException} is thrown: the one from the earliest failing chunk.
+ */
+public final class ParallelLexer {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final String input;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer(String input) {
+        this(input, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(String input, ForkJoinPool pool) {
+        this(input, pool, Math.max(CHUNK_SIZE, input.length() / (4 * pool.getParallelism()) + 1));
+    }
+
+    ParallelLexer(String input, ForkJoinPool pool, int chunkSize) {
+        this.input = input;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<Token> lex() {
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < input.length()) {
+            int newline = start + chunkSize < input.length() ? input.indexOf('\n', start + chunkSize) : -1;
+            int end = newline == -1 ? input.length() : newline + 1;
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        if (chunks.size() <= 1) {
+            return new TableLexer(input).lex();
+        }
+        for (Chunk chunk : chunks) {
+            pool.execute(chunk);
+        }
+        int size = 0;
+        for (Chunk chunk : chunks) {
+            chunk.join();
+            if (chunk.exception != null) {
+                throw chunk.exception;
+            }
+            size += chunk.tokens.size();
+        }
+        List<Token> tokens = new ArrayList<>(size);
+        for (Chunk chunk : chunks) {
+            tokens.addAll(chunk.tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes {@code input[start, end)}, keeping any exception so they can be
+     * rethrown in order instead of from whichever chunk fails first.
+     */
+    @SuppressWarnings("serial")
+    private final class Chunk extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+        private List<Token> tokens;
+        private ParseException exception;
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                tokens = new TableLexer(new Lexer.CharStream(input, start, end)).lex();
+            } catch (ParseException e) {
+                exception = e;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the methods of a source in parallel on a {@link ForkJoinPool}.
+ *
+ * A pre-scan finds the top-level {@code DEF} tokens, counting {@code DEF},
+ * {@code IF}, {@code FOR} and {@code WHILE} against {@code END}. Consecutive
+ * methods are then split into batches, each parsed by its own {@link Parser}
+ * over a sublist of the tokens. Once the first method is reached, parsing at
+ * the top level only depends on the tokens of the current member, so if every
+ * batch parses completely, the result is the same as {@link
+ * Parser#parseSource()}. If any batch fails, which includes a pre-scan gone
+ * wrong, the whole source is parsed sequentially instead so that the same
+ * {@link ParseException} is thrown.
+ */
+public final class ParallelParser {
+
+    private static final int BATCH_SIZE = 1 << 13;
+
+    private final List<Token> tokens;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    public ParallelParser(List<Token> tokens) {
+        this(tokens, ForkJoinPool.commonPool());
+    }
+
+    public ParallelParser(List<Token> tokens, ForkJoinPool pool) {
+        this(tokens, pool, Math.max(BATCH_SIZE, tokens.size() / (4 * pool.getParallelism()) + 1));
+    }
+
+    /**
+     * Creates a parallel parser where batches contain methods until they
+     * reach at least batchSize tokens.
+     */
+    ParallelParser(List<Token> tokens, ForkJoinPool pool, int batchSize) {
+        this.tokens = tokens;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    public Ast.Source parseSource() throws ParseException {
+        List<Integer> methods = scan();
+        if (methods.size() <= 1) {
+            return new Parser(tokens).parseSource();
+        }
+        List<Batch> batches = new ArrayList<>();
+        batches.add(new Batch(0, methods.get(0)));
+        int start = methods.get(0);
+        for (int method : methods) {
+            if (method - start >= batchSize) {
+                batches.add(new Batch(start, method));
+                start = method;
+            }
+        }
+        batches.add(new Batch(start, tokens.size()));
+        for (Batch batch : batches) {
+            pool.execute(batch);
+        }
+        List<Ast.Method> parsed = new ArrayList<>();
+        boolean failed = false;
+        for (int i = 0; i < batches.size(); i++) {
+            Batch batch = batches.get(i);
+            batch.join();
+            // fields are only allowed before the first method, and parse
+            // without an error in a batch of methods
+            if (batch.source == null || (i == 0 ? !batch.source.getMethods().isEmpty() : !batch.source.getFields().isEmpty())) {
+                failed = true;
+            } else if (!failed) {
+                parsed.addAll(batch.source.getMethods());
+            }
+        }
+        if (failed) {
+            return new Parser(tokens).parseSource();
+        }
+        Ast.Source source = new Ast.Source(batches.get(0).source.getFields(), parsed);
+        Token last = tokens.get(tokens.size() - 1);
+        source.setSpan(tokens.get(0).getIndex(), last.getIndex() + last.getLength());
+        return source;
+    }
+
+    /**
+     * Returns the positions of the top-level {@code DEF} tokens. Keywords are
+     * lexed as identifiers, so only the literals are compared.
+     */
+    private List<Integer> scan() {
+        List<Integer> methods = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getType() != Token.Type.IDENTIFIER) {
+                continue;
+            }
+            if (token.literalEquals("DEF")) {
+                if (depth == 0) {
+                    methods.add(i);
+                }
+                depth++;
+            } else if (token.literalEquals("IF") || token.literalEquals("FOR") || token.literalEquals("WHILE")) {
+                depth++;
+            } else if (token.literalEquals("END") && depth > 0) {
+                depth--;
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Parses the tokens [start, end), which are either the fields or a run of
+     * complete methods. The source is left null if it fails to parse, since
+     * the exception may differ from the one for the whole source.
+     */
+    @SuppressWarnings("serial")
+    private final class Batch extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+        private Ast.Source source;
+
+        private Batch(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                source = new Parser(tokens.subList(start, end)).parseSource();
+            } catch (ParseException e) {
+                source = null;
+            }
+        }
+
+    }
+
+}
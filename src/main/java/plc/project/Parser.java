@@ -2,7 +2,9 @@ package plc.project;
 
 import javax.swing.text.html.Option;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.function.Function;
@@ -26,10 +28,81 @@ import java.math.BigDecimal;
  */
 public final class Parser {
 
+    /**
+     * The precedence of each binary operator, all of which are left
+     * associative. Adding an operator only requires an entry here, which is
+     * used by {@link #parseBinaryExpression(int)}.
+     */
+    private static final Map<String, Integer> PRECEDENCE = new HashMap<>();
+
+    private static final int LOGICAL = 1;
+    private static final int EQUALITY = 2;
+    private static final int ADDITIVE = 3;
+    private static final int MULTIPLICATIVE = 4;
+
+    static {
+        for (String operator : new String[] {"&&", "||"}) {
+            PRECEDENCE.put(operator, LOGICAL);
+        }
+        for (String operator : new String[] {"!=", "==", "<=", ">", ">=", "<"}) {
+            PRECEDENCE.put(operator, EQUALITY);
+        }
+        for (String operator : new String[] {"+", "-"}) {
+            PRECEDENCE.put(operator, ADDITIVE);
+        }
+        for (String operator : new String[] {"*", "/"}) {
+            PRECEDENCE.put(operator, MULTIPLICATIVE);
+        }
+    }
+
     private final TokenStream tokens;
+    private List<ParseException> errors = null;
+    private AstInterner interner = null;
 
     public Parser(List<Token> tokens) {
-        this.tokens = new TokenStream(tokens);
+        this(TokenSource.of(tokens));
+    }
+
+    /**
+     * Creates a parser which pulls tokens lazily from the given source, such
+     * as {@link TableLexer#tokens()}, so the full token list is never held in
+     * memory.
+     */
+    public Parser(TokenSource tokens) {
+        this.tokens = new BufferedTokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser which reads tokens directly from packed arrays, see
+     * {@link TableLexer#lexPacked()}.
+     */
+    public Parser(PackedTokens tokens) {
+        this.tokens = new PackedTokenStream(tokens);
+    }
+
+    /**
+     * Hash-conses constant expressions through the given interner while
+     * parsing, or stops doing so if it is null, which is the default. Shared
+     * nodes lose their spans, see {@link AstInterner}, so an interner should
+     * not be set where nodes are reported by their position.
+     */
+    public void setInterner(AstInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Parses the {@code source} rule, recovering from errors instead of
+     * throwing the first one. Each {@link ParseException} is added to errors
+     * and the parser synchronizes on the next {@code ;}, {@code END}, {@code
+     * DEF} or {@code LET}. Statements which fail become {@link
+     * Ast.Statement.Error} nodes, but a field or method which fails outside
+     * of its statements has no node to stand for it, since a source only
+     * holds fields and methods. It is dropped from the returned source, and
+     * its exception is only in errors.
+     */
+    public Ast.Source parseSource(List<ParseException> errors) {
+        this.errors = errors;
+        return parseSource();
     }
 
     /**
@@ -37,6 +110,7 @@ public final class Parser {
      */
     public Ast.Source parseSource() throws ParseException {
 
+        int start = getIndex();
         boolean finished_method = false;
         List<Ast.Field> fields = new ArrayList<>();
         List<Ast.Method> methods = new ArrayList<>();
@@ -44,33 +118,67 @@ public final class Parser {
         while (tokens.has(0)) {
             // check for all valid words
 
-            //first LET
-            if (peek("LET") && !finished_method) {
+            try {
+                //first LET
+                if (peek("LET") && !finished_method) {
 
-                fields.add(parseField());
+                    fields.add(parseField());
 
-                //check for DEF
-            } else if (peek("DEF")) {
+                    //check for DEF
+                } else if (peek("DEF")) {
 
-                finished_method = true;
+                    finished_method = true;
 
-                methods.add(parseMethod());
+                    methods.add(parseMethod());
 
-            } else {
+                } else {
 
-                // Throw parse exception if neither
-                throw new ParseException("Neither LET nor DEF", /* tokens.get(0). */getIndex());
+                    // Throw parse exception if neither
+                    throw new ParseException("Neither LET nor DEF", /* tokens.get(0). */getIndex());
+                }
+            } catch (ParseException e) {
+                if (errors == null) {
+                    throw e;
+                }
+                record(e);
+                // skip to the next member, which can only be a field if no
+                // method has been parsed yet
+                while (tokens.has(0) && !peek("DEF") && !(peek("LET") && !finished_method)) {
+                    tokens.advance();
+                }
             }
         }
 
         // Return source with lists/fields methods
 
-        return new Ast.Source(fields, methods);
+        return span(new Ast.Source(fields, methods), start);
         //throw new UnsupportedOperationException(); //TODO
 
     }
 
 
+    /**
+     * Parses the {@code source} rule as in {@link #parseSource()}, but into a
+     * {@link FlatAst}. Each field and method is encoded as soon as it is
+     * parsed, so only the {@link Ast} nodes of one member are held at once.
+     */
+    public FlatAst parseFlatSource() throws ParseException {
+        int start = getIndex();
+        boolean finished_method = false;
+        FlatAst.Builder builder = new FlatAst.Builder();
+        while (tokens.has(0)) {
+            if (peek("LET") && !finished_method) {
+                builder.add(parseField());
+            } else if (peek("DEF")) {
+                finished_method = true;
+                builder.add(parseMethod());
+            } else {
+                throw new ParseException("Neither LET nor DEF", getIndex());
+            }
+        }
+        return builder.build(start, tokens.hasPrevious() ? tokens.getIndex(-1) + tokens.getLength(-1) : start);
+    }
+
     /**
      * Parses the {@code field} rule. This method should only be called if the
      * next tokens start a field, aka {@code LET}.
@@ -85,6 +193,8 @@ public final class Parser {
         // We define an expression for initialization to null
         Ast.Expression exprAst = null;
 
+        int start = getIndex();
+
         // Advance the token stream to process the field declaration
         tokens.advance();
 
@@ -98,7 +208,7 @@ public final class Parser {
         if (!peek(Token.Type.IDENTIFIER)) {
             throw new ParseException("Identifier Expected - ", getIndex());
         } else {
-            strNM = tokens.get(0).getLiteral();
+            strNM = tokens.getLiteral(0);
             tokens.advance();
         }
 
@@ -109,7 +219,7 @@ public final class Parser {
             if (!peek(Token.Type.IDENTIFIER)) {
                 throw new ParseException("Type identifier expected after ':'", getIndex());
             }
-            type = Optional.of(tokens.get(0).getLiteral());
+            type = Optional.of(tokens.getLiteral(0));
             tokens.advance(); // Consume the type identifier
         }
 
@@ -125,7 +235,7 @@ public final class Parser {
         }
 
         // Return the parsed field with its name, constant status, type, and initializer
-        return new Ast.Field(strNM, type.orElse(null), constInStatement, Optional.ofNullable(exprAst));
+        return span(new Ast.Field(strNM, type.orElse(null), constInStatement, Optional.ofNullable(exprAst)), start);
     }
 
 //    public Ast.Field parseField() throws ParseException {
@@ -221,6 +331,8 @@ public final class Parser {
         // Create an Optional to hold the return type
         Optional<String> returnType = Optional.empty();
 
+        int start = getIndex();
+
         // Advance past the "DEF" keyword
         tokens.advance();
 
@@ -228,7 +340,7 @@ public final class Parser {
         if (!peek(Token.Type.IDENTIFIER)) {
             throw new ParseException("Method name expected", getIndex());
         }
-        methodName = tokens.get(0).getLiteral();
+        methodName = tokens.getLiteral(0);
         tokens.advance();
 
         // Parse the parameter list enclosed in parentheses
@@ -238,14 +350,14 @@ public final class Parser {
 
         // Parse optional parameters and initialize their types to "Any"
         if (peek(Token.Type.IDENTIFIER)) {
-            parameters.add(tokens.get(0).getLiteral());
+            parameters.add(tokens.getLiteral(0));
             parameterTypeNames.add("Any"); // Default type for parameters
             tokens.advance();
 
             // Parse additional parameters if present, separated by commas
             while (peek(",", Token.Type.IDENTIFIER)) {
                 tokens.advance(); // Consume the ',' token
-                parameters.add(tokens.get(0).getLiteral());
+                parameters.add(tokens.getLiteral(0));
                 parameterTypeNames.add("Any"); // Default type for parameters
                 tokens.advance();
             }
@@ -261,7 +373,7 @@ public final class Parser {
             if (!peek(Token.Type.IDENTIFIER)) {
                 throw new ParseException("Return type expected after ':'", getIndex());
             }
-            returnType = Optional.of(tokens.get(0).getLiteral());
+            returnType = Optional.of(tokens.getLiteral(0));
             tokens.advance();
         }
 
@@ -271,8 +383,8 @@ public final class Parser {
         }
 
         // Parse statements until the "END" keyword is encountered
-        while (!peek("END")) {
-            statements.add(parseStatement());
+        while (!peek("END") && !peekBoundary()) {
+            statements.add(parseBlockStatement());
         }
 
         // Check for the "END" keyword to close the method body
@@ -281,7 +393,7 @@ public final class Parser {
         }
 
         // Return the constructed Ast.Method object
-        return new Ast.Method(methodName, parameters, parameterTypeNames, returnType, statements);
+        return span(new Ast.Method(methodName, parameters, parameterTypeNames, returnType, statements), start);
     }
 
 
@@ -359,37 +471,87 @@ public final class Parser {
 //        //throw new UnsupportedOperationException(); //TODO
 //    }
 
+    /**
+     * Parses a statement in a block. While recovering from errors, a statement
+     * which fails is recorded and replaced by an {@link Ast.Statement.Error},
+     * after skipping past the next {@code ;} or up to the next {@code END},
+     * {@code DEF} or {@code LET}.
+     */
+    private Ast.Statement parseBlockStatement() throws ParseException {
+        if (errors == null) {
+            return parseStatement();
+        }
+        int index = getIndex();
+        try {
+            return parseStatement();
+        } catch (ParseException e) {
+            record(e);
+            while (tokens.has(0) && !peek("END") && !peek("DEF") && !peek("LET")) {
+                if (match(";")) {
+                    break;
+                }
+                tokens.advance();
+            }
+            if (getIndex() == index && tokens.has(0)) {
+                tokens.advance(); // always make progress
+            }
+            return span(new Ast.Statement.Error(e), index);
+        }
+    }
+
+    /**
+     * Returns true if a block should end even without its {@code END}, which
+     * is only once an error has been recorded, since a {@code DEF} or the end
+     * of input can never be part of a statement. Until then, the parser is
+     * the same as without recovery, so the first error is the same as the
+     * exception {@link #parseSource()} would throw.
+     */
+    private boolean peekBoundary() {
+        return errors != null && !errors.isEmpty() && (!tokens.has(0) || peek("DEF"));
+    }
+
+    /**
+     * Adds an error while recovering, unless it is at the same index as the
+     * previous one (such as a missing {@code END} reported by each block).
+     */
+    private void record(ParseException exception) {
+        if (errors.isEmpty() || errors.get(errors.size() - 1).getIndex() != exception.getIndex()) {
+            errors.add(exception);
+        }
+    }
+
     /**
      * Parses the {@code statement} rule and delegates to the necessary method.
      * If the next tokens do not start a declaration, if, for, while, or return
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Statement parseStatement() throws ParseException {
+        int start = getIndex();
         // we will check for each keyword in this part of the statement section
         if (tokens.has(0)) {
             // LET check
             if (match("LET")) {
                 // Ast.Field field = parseField();
-                return parseDeclarationStatement();
+                return span(parseDeclarationStatement(), start);
             }
 
             // IF check
             else if (match("IF")) {
-                return parseIfStatement();
+                return span(parseIfStatement(), start);
             }
 
             // FOR check
             else if (match("FOR")) {
-                return parseForStatement();
+                return span(parseForStatement(), start);
             }
 
             // WHILE check
             else if (match("WHILE")) {
-                return parseWhileStatement();
+                return span(parseWhileStatement(), start);
             }
 
             else if (match("RETURN")) {
-                return parseReturnStatement();
+                return span(parseReturnStatement(), start);
             }
 
             else {
@@ -404,12 +566,12 @@ public final class Parser {
                     if (!match(";")) {
                         throw new ParseException("Semicolon expected after assignment ';'", getIndex());
                     }
-                    return new Ast.Statement.Assignment(exprAST, valAST);
+                    return span(new Ast.Statement.Assignment(exprAST, valAST), start);
                 }
                 if (!match(";")) {
                     throw new ParseException("Semicolon expected after assignment ';'", /* tokens.get(0). */getIndex());
                 }
-                return new Ast.Statement.Expression(exprAST);
+                return span(new Ast.Statement.Expression(exprAST), start);
             }
         }
          throw new ParseException("There was a statement expected - ", /* tokens.get(0). */getIndex());
@@ -458,7 +620,7 @@ public final class Parser {
         if (!peek(Token.Type.IDENTIFIER)) {
             throw new ParseException("Identifier expected after LET", getIndex());
         } else {
-            strNM = tokens.get(0).getLiteral();
+            strNM = tokens.getLiteral(0);
             tokens.advance();
         }
 
@@ -468,7 +630,7 @@ public final class Parser {
             if (!peek(Token.Type.IDENTIFIER)) {
                 throw new ParseException("Type identifier expected after ':'", getIndex());
             }
-            type = Optional.of(tokens.get(0).getLiteral());
+            type = Optional.of(tokens.getLiteral(0));
             tokens.advance(); // Consume the type
         }
 
@@ -537,7 +699,6 @@ public final class Parser {
 //        //throw new UnsupportedOperationException(); //TODO
 //    }
     public Ast.Statement.If parseIfStatement() throws ParseException {
-        System.out.println("Parsing IF statement...");
         Ast.Expression condition = parseExpression(); // Parse the condition
 
         // Expect 'DO'
@@ -548,9 +709,9 @@ public final class Parser {
 
         // Parse 'then' block statements
         List<Ast.Statement> thenStatements = new ArrayList<>();
-        while (!peek("ELSE") && !peek("END")) {
+        while (!peek("ELSE") && !peek("END") && !peekBoundary()) {
 
-            thenStatements.add(parseStatement());
+            thenStatements.add(parseBlockStatement());
         }
 
         // Parse optional 'ELSE' block
@@ -559,8 +720,8 @@ public final class Parser {
 
         if (match("ELSE")) {
 
-            while (!peek("END")) {
-                elseStatements.add(parseStatement());
+            while (!peek("END") && !peekBoundary()) {
+                elseStatements.add(parseBlockStatement());
 
             }
 
@@ -573,8 +734,6 @@ public final class Parser {
 
         }
 
-        System.out.println("Successfully parsed IF statement.");
-
         return new Ast.Statement.If(condition, thenStatements, elseStatements);
 
     }
@@ -602,6 +761,7 @@ public final class Parser {
         {
 //            String strNM = tokens.get(0).getLiteral();
 
+            int start = getIndex();
             Ast.Expression toRecord = parseExpression();
             tokens.advance();
 
@@ -610,7 +770,7 @@ public final class Parser {
 
 
             Ast.Expression valExprAST = parseExpression();
-            initAST = new Ast.Statement.Assignment(toRecord, valExprAST);
+            initAST = span(new Ast.Statement.Assignment(toRecord, valExprAST), start);
         }
 
         // Expect first ;
@@ -631,10 +791,11 @@ public final class Parser {
 
         if (peek(Token.Type.IDENTIFIER, "="))
         {
+            int start = getIndex();
             Ast.Expression recordAST = parseExpression();
             tokens.advance();
             Ast.Expression valAST = parseExpression();
-            incAST = new Ast.Statement.Assignment(recordAST, valAST);
+            incAST = span(new Ast.Statement.Assignment(recordAST, valAST), start);
         }
 
 //        if (tokens.has(0))
@@ -649,9 +810,9 @@ public final class Parser {
             throw new ParseException("After increment expect )", getIndex());
         }
 
-        while (!peek("END")) {
+        while (!peek("END") && !peekBoundary()) {
 
-            stmAST.add(parseStatement());
+            stmAST.add(parseBlockStatement());
 
         }
         // Parse loop body
@@ -696,9 +857,9 @@ public final class Parser {
 //            stmAST.add(parseStatement());
 //        }
 
-        while (!peek("END")) {
+        while (!peek("END") && !peekBoundary()) {
 
-            stmAST.add(parseStatement());
+            stmAST.add(parseBlockStatement());
         }
 
         // END TO CLOSE WHILE
@@ -751,60 +912,50 @@ public final class Parser {
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expression parseLogicalExpression() throws ParseException {
-        Ast.Expression left = parseEqualityExpression(); // Parse left
-
-        while (peek("&&") || peek("||")) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance();
-            left = new Ast.Expression.Binary(operator, left, parseEqualityExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
      * Parses the {@code equality-expression} rule.
      */
     public Ast.Expression parseEqualityExpression() throws ParseException {
-        Ast.Expression left = parseAdditiveExpression();
-
-        while (peek("!=") || peek("==") || peek("<=") || peek(">") || peek(">=") || peek("<")) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance();
-            left = new Ast.Expression.Binary(operator, left, parseAdditiveExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(EQUALITY);
     }
-/////////////HEREHREHREHREHRHERHERHEHREHREHREHREHRHEHREHREHREHRHERHERHERHERHEHREHREHREHREHREHRHEREHRHERHERHE
+
     /**
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expression parseAdditiveExpression() throws ParseException {
-        Ast.Expression left = parseMultiplicativeExpression();
-
-        while (peek("+") || peek("-")) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance();
-            left = new Ast.Expression.Binary(operator, left, parseMultiplicativeExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(ADDITIVE);
     }
 
     /**
      * Parses the {@code multiplicative-expression} rule.
      */
     public Ast.Expression parseMultiplicativeExpression() throws ParseException {
-        Ast.Expression left = parseSecondaryExpression();
+        return parseBinaryExpression(MULTIPLICATIVE);
+    }
 
-        while (peek("*") || peek("/")) {
-            String operator = tokens.get(0).getLiteral();
+    /**
+     * Parses binary operators with at least the given precedence using
+     * precedence climbing, which produces the same trees as the chain of
+     * rules from {@code logical-expression} to {@code
+     * multiplicative-expression}. Each operand is parsed directly as a
+     * {@code secondary-expression}, and each operator is looked up in
+     * {@link #PRECEDENCE} once.
+     */
+    private Ast.Expression parseBinaryExpression(int precedence) throws ParseException {
+        int start = getIndex();
+        Ast.Expression left = parseSecondaryExpression();
+        while (true) {
+            int current = precedence();
+            if (current < precedence) {
+                return left;
+            }
+            String operator = tokens.getLiteral(0);
             tokens.advance();
-            left = new Ast.Expression.Binary(operator, left, parseSecondaryExpression());
+            left = intern(span(new Ast.Expression.Binary(operator, left, parseBinaryExpression(current + 1)), start));
         }
-
-        return left;
     }
 
     /**
@@ -813,8 +964,9 @@ public final class Parser {
     public Ast.Expression parseSecondaryExpression() throws ParseException {
 
 
+        int start = getIndex();
         Ast.Expression expression = parsePrimaryExpression();
-        Token rgt;
+        String rgt;
 
         while(Boolean.TRUE) {
             if (!peek(".")) {
@@ -827,7 +979,7 @@ public final class Parser {
 
                 throw new ParseException("Expected identifier after '.'", /* tokens.get(0). */getIndex());
             }
-            rgt = tokens.get(0);
+            rgt = tokens.getLiteral(0);
             tokens.advance();
 
             if (match("(")) {
@@ -850,11 +1002,11 @@ public final class Parser {
                 if (peek(")")) {
                     tokens.advance();
 
-                    Ast.Expression hold = new Ast.Expression.Function(Optional.of(expression), rgt.getLiteral(), args);
+                    Ast.Expression hold = span(new Ast.Expression.Function(Optional.of(expression), rgt, args), start);
                     expression = hold;
                 }
             } else {
-                Ast.Expression hold = new Ast.Expression.Access(Optional.of(expression), rgt.getLiteral());
+                Ast.Expression hold = span(new Ast.Expression.Access(Optional.of(expression), rgt), start);
                 expression = hold;
             }
         }
@@ -870,47 +1022,34 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expression parsePrimaryExpression() throws ParseException {
-
+        int start = getIndex();
         if (match("NIL")) {
-            return new Ast.Expression.Literal(null);
+            return intern(span(new Ast.Expression.Literal(null), start));
         } else if (match("TRUE")) {
-            return new Ast.Expression.Literal(Boolean.TRUE);
+            return intern(span(new Ast.Expression.Literal(Boolean.TRUE), start));
         } else if (match("FALSE")) {
-            return new Ast.Expression.Literal(Boolean.FALSE);
+            return intern(span(new Ast.Expression.Literal(Boolean.FALSE), start));
         } else if (peek(Token.Type.INTEGER)) {
-            BigInteger bigIntValue = new BigInteger(tokens.get(0).getLiteral());
+            Object value = tokens.getValue(0);
+            BigInteger bigIntValue = value != null ? (BigInteger) value : new BigInteger(tokens.getLiteral(0));
             tokens.advance();
-            return new Ast.Expression.Literal(bigIntValue);
+            return intern(span(new Ast.Expression.Literal(bigIntValue), start));
         } else if (peek(Token.Type.DECIMAL)) {
-            BigDecimal bigDecValue = new BigDecimal(tokens.get(0).getLiteral());
+            Object value = tokens.getValue(0);
+            BigDecimal bigDecValue = value != null ? (BigDecimal) value : new BigDecimal(tokens.getLiteral(0));
             tokens.advance();
-            return new Ast.Expression.Literal(bigDecValue);
+            return intern(span(new Ast.Expression.Literal(bigDecValue), start));
 
         } else if (peek(Token.Type.CHARACTER)) {
-            String chStr = new String(tokens.get(0).getLiteral());
-            chStr = chStr.substring(1, chStr.length() - 1);
-
-            chStr = chStr.replace("\\b", "\b").replace("\\n", "\n").replace("\\r", "\r").replace("\\t", "\t");
-
-            chStr = chStr.replace("\\'", "'").replace("\\\\", "\\").replace("\\\"", "\"");
-
-            Character chValue = chStr.charAt(0);
+            Object value = tokens.getValue(0);
+            Character chValue = value != null ? (Character) value : decode(tokens.getLiteral(0)).charAt(0);
             tokens.advance();
-
-            return new Ast.Expression.Literal(chValue);
+            return intern(span(new Ast.Expression.Literal(chValue), start));
         } else if (peek(Token.Type.STRING)) {
-
-            String chStr = new String(tokens.get(0).getLiteral());
-
-            chStr = chStr.substring(1, chStr.length() - 1);
-
-            chStr = chStr.replace("\\b", "\b").replace("\\n", "\n").replace("\\r", "\r").replace("\\t", "\t");
-
-            chStr = chStr.replace("\\'", "'").replace("\\\\", "\\").replace("\\\"", "\"");
-
+            Object value = tokens.getValue(0);
+            String strValue = value != null ? (String) value : decode(tokens.getLiteral(0));
             tokens.advance();
-
-            return new Ast.Expression.Literal(chStr);
+            return intern(span(new Ast.Expression.Literal(strValue), start));
         } else if (match("(")) {
             Ast.Expression expression = parseExpression();
             if (!match(")")) {
@@ -918,15 +1057,15 @@ public final class Parser {
                 throw new ParseException("Expected ')' to close grouped expression", /* tokens.get(0). */getIndex());
             }
 
-            return new Ast.Expression.Group(expression);
+            return intern(span(new Ast.Expression.Group(expression), start));
 
         }
         else if (peek(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(0).getLiteral();
+            String name = tokens.getLiteral(0);
             tokens.advance();
 ///////////////////////////////////////////////////////////
             if (!match("(")) {
-                return new Ast.Expression.Access(Optional.empty(), name);
+                return span(new Ast.Expression.Access(Optional.empty(), name), start);
             }
 
                 List<Ast.Expression> args = new ArrayList<>();
@@ -947,7 +1086,7 @@ public final class Parser {
 
                 if (peek(")")) {
                     tokens.advance();
-                    return new Ast.Expression.Function(Optional.empty(), name, args);
+                    return span(new Ast.Expression.Function(Optional.empty(), name, args), start);
                 }
 
                 throw new ParseException("End parentheses ) expected - ", /* tokens.get(0). */getIndex());
@@ -975,11 +1114,11 @@ public final class Parser {
             if (!tokens.has(i)) {
                 return false;
             } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
+                if (patterns[i] != tokens.getType(i)) {
                     return false;
                 }
             } else if (patterns[i] instanceof String) {
-                if (!patterns[i].equals(tokens.get(i).getLiteral())) {
+                if (!tokens.literalEquals(i, (String) patterns[i])) {
                     return false;
                 }
             } else {
@@ -1010,6 +1149,30 @@ public final class Parser {
 //        return true;
 //    }
 
+    /**
+     * Returns {@code true} if the current token's literal is the given one,
+     * which is {@link #peek(Object...)} without allocating the patterns.
+     */
+    public boolean peek(String literal) {
+        return tokens.has(0) && tokens.literalEquals(0, literal);
+    }
+
+    /**
+     * Returns {@code true} if the current token has the given type, which is
+     * {@link #peek(Object...)} without allocating the patterns.
+     */
+    public boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
+    }
+
+    /**
+     * Returns the precedence of the current token if it is a binary operator,
+     * otherwise 0.
+     */
+    private int precedence() {
+        return peek(Token.Type.OPERATOR) ? PRECEDENCE.getOrDefault(tokens.getLiteral(0), 0) : 0;
+    }
+
     /**
      * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
      * and advances the token stream.
@@ -1024,6 +1187,28 @@ public final class Parser {
         return peek;
     }
 
+    /**
+     * As in {@link #peek(String)}, advancing the token stream if it matches.
+     */
+    public boolean match(String literal) {
+        boolean peek = peek(literal);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
+    /**
+     * As in {@link #peek(Token.Type)}, advancing the token stream if it matches.
+     */
+    public boolean match(Token.Type type) {
+        boolean peek = peek(type);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
 
 // Match with debugging print
 //    private boolean match(Object... patterns) {
@@ -1037,49 +1222,280 @@ public final class Parser {
 //        }
 //        return peek;
 //    }
-    private int getIndex() {
+    /**
+     * Decodes the escapes of a character or string literal (excluding its
+     * quotes) in a single pass, for tokens without a value from the lexer.
+     */
+    private static String decode(String literal) {
+        StringBuilder builder = new StringBuilder(literal.length() - 2);
+        for (int i = 1; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            builder.append(c == '\\' ? Lexer.unescape(literal.charAt(++i)) : c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Sets the span of ast from start to the end of the previous token.
+     */
+    private <T extends Ast> T span(T ast, int start) {
+        ast.setSpan(start, tokens.hasPrevious() ? tokens.getIndex(-1) + tokens.getLength(-1) : start);
+        return ast;
+    }
+
+    /**
+     * Returns the canonical node for expression if hash-consing.
+     */
+    private Ast.Expression intern(Ast.Expression expression) {
+        return interner == null ? expression : interner.intern(expression);
+    }
+
+    /**
+     * Returns true if there are tokens left to parse.
+     */
+    boolean hasNext() {
+        return tokens.has(0);
+    }
+
+    /**
+     * Returns the index of the current token, or the end of the previous
+     * token at the end of input, which is where errors are reported.
+     */
+    int getIndex() {
         if (!tokens.has(0))
         {
-            return tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+            if (!tokens.hasPrevious()) {
+                return 0;
+            }
+            return tokens.getIndex(-1) + tokens.getLength(-1);
 
         }
 
         else
         {
-            return tokens.get(0).getIndex();
+            return tokens.getIndex(0);
         }
     }
-    private static final class TokenStream {
-
-        private final List<Token> tokens;
-        private int index = 0;
 
-        private TokenStream(List<Token> tokens) {
-            this.tokens = tokens;
-        }
+    /**
+     * The tokens being parsed, accessed relative to the current token. The
+     * only negative offset supported is -1, the previous token.
+     */
+    private interface TokenStream {
 
         /**
          * Returns true if there is a token at index + offset.
          */
+        boolean has(int offset);
+
+        /**
+         * Returns true if a token has been advanced past.
+         */
+        boolean hasPrevious();
+
+        /**
+         * Advances to the next token, incrementing the index.
+         */
+        void advance();
+
+        Token.Type getType(int offset);
+
+        String getLiteral(int offset);
+
+        boolean literalEquals(int offset, String literal);
+
+        int getIndex(int offset);
+
+        int getLength(int offset);
+
+        /**
+         * Returns the value computed by the lexer, see {@link Token#getValue()}.
+         */
+        Object getValue(int offset);
+
+    }
+
+    /**
+     * Maintains a small lookahead window over a {@link TokenSource}. Tokens
+     * are pulled from the source only when {@link #has(int)} or {@link
+     * #get(int)} reach them, and are dropped once advanced past, except for
+     * the previous token which is kept for error indices.
+     */
+    private static final class BufferedTokenStream implements TokenStream {
+
+        private final TokenSource source;
+        private Token[] window = new Token[4];
+        private int start = 0; // position of the current token in window
+        private int size = 0;  // number of buffered tokens
+        private boolean exhausted = false;
+        private Token previous = null;
+
+        private BufferedTokenStream(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
         public boolean has(int offset) {
-            return index + offset < tokens.size();
+            return offset < size || fill(offset);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return previous != null;
         }
 
         /**
          * Gets the token at index + offset.
          */
         public Token get(int offset) {
-            return tokens.get(index + offset);
+            if (offset == -1 && previous != null) {
+                return previous;
+            } else if (offset < 0 || !has(offset)) {
+                throw new IndexOutOfBoundsException("No token at offset " + offset + ".");
+            }
+            return window[(start + offset) & (window.length - 1)];
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
         }
 
         /**
-         * Advances to the next token, incrementing the index.
+         * Literals are usually compared with string constants, which are
+         * identical to symbols, so identity is checked first.
          */
+        @Override
+        public boolean literalEquals(int offset, String literal) {
+            Token token = get(offset);
+            return token.isSymbol()
+                    ? token.getLiteral() == literal || token.getLiteral().equals(literal)
+                    : token.literalEquals(literal);
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return get(offset).getIndex();
+        }
+
+        @Override
+        public int getLength(int offset) {
+            return get(offset).getLength();
+        }
+
+        @Override
+        public Object getValue(int offset) {
+            return get(offset).getValue();
+        }
+
+        @Override
         public void advance() {
-            index++;
+            if (has(0)) {
+                previous = window[start];
+                window[start] = null;
+                start = (start + 1) & (window.length - 1);
+                size--;
+            }
+        }
+        /**
+         * Pulls tokens from the source until the window reaches offset,
+         * doubling the window if it is full.
+         */
+        private boolean fill(int offset) {
+            while (!exhausted && size <= offset) {
+                Token token = source.next();
+                if (token == null) {
+                    exhausted = true;
+                } else {
+                    if (size == window.length) {
+                        Token[] grown = new Token[window.length * 2];
+                        for (int i = 0; i < size; i++) {
+                            grown[i] = window[(start + i) & (window.length - 1)];
+                        }
+                        window = grown;
+                        start = 0;
+                    }
+                    window[(start + size) & (window.length - 1)] = token;
+                    size++;
+                }
+            }
+            return offset < size;
         }
 
     }
 
-}
+    /**
+     * Reads tokens directly from {@link PackedTokens}, so peeking compares
+     * array elements against the source without any {@link Token} objects.
+     */
+    private static final class PackedTokenStream implements TokenStream {
 
+        private final PackedTokens tokens;
+        private int index = 0;
+
+        private PackedTokenStream(PackedTokens tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < tokens.size();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        public void advance() {
+            if (has(0)) {
+                index++;
+            }
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return tokens.getType(position(offset));
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return tokens.getLiteral(position(offset));
+        }
+
+        @Override
+        public boolean literalEquals(int offset, String literal) {
+            return tokens.literalEquals(position(offset), literal);
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return tokens.getIndex(position(offset));
+        }
+
+        @Override
+        public int getLength(int offset) {
+            return tokens.getLength(position(offset));
+        }
+
+        @Override
+        public Object getValue(int offset) {
+            return null;
+        }
+
+        private int position(int offset) {
+            if (offset < -1) {
+                throw new IndexOutOfBoundsException("No token at offset " + offset + ".");
+            }
+            return index + offset;
+        }
+
+    }
+
+}
@@ -0,0 +1,246 @@
+package plc.project;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the local variables of each method to a (depth, slot) pair, so the
+ * {@link Interpreter} can store them in a {@link Frame} instead of looking up
+ * their names in a {@link Scope}.
+ *
+ * Variables are resolved with the lexical scoping of the {@link Analyzer}: a
+ * method sees its parameters and the locals declared before a use in
+ * enclosing blocks, and anything else (fields and variables defined outside
+ * of the source) is left unresolved and looked up by name. Frames are created
+ * where the interpreter creates a scope, for a method and each {@code IF},
+ * {@code FOR} and {@code WHILE}, except for blocks which declare nothing,
+ * which are not counted in the depth.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    private Block block = null;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        Block previous = block;
+        block = new Block(null, !ast.getParameters().isEmpty() || declares(ast.getStatements()));
+        try {
+            for (String parameter : ast.getParameters()) {
+                block.declare(parameter);
+            }
+            resolve(ast.getStatements());
+            ast.setFrameSize(block.slots.size());
+        } finally {
+            block = previous;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        if (block != null) {
+            ast.setSlot(block.declare(ast.getName()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    /**
+     * Both branches use the frame of the if statement, since only one of them
+     * is executed.
+     */
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        if (block == null) {
+            return null;
+        }
+        boolean frame = declares(ast.getThenStatements()) || declares(ast.getElseStatements());
+        Block previous = block;
+        try {
+            block = new Block(previous, frame);
+            resolve(ast.getThenStatements());
+            int size = block.slots.size();
+            block = new Block(previous, frame);
+            resolve(ast.getElseStatements());
+            ast.setFrameSize(Math.max(size, block.slots.size()));
+        } finally {
+            block = previous;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.For ast) {
+        if (block == null) {
+            return null;
+        }
+        Block previous = block;
+        block = new Block(previous, ast.getInitialization() instanceof Ast.Statement.Declaration || declares(ast.getStatements()));
+        try {
+            if (ast.getInitialization() != null) {
+                visit(ast.getInitialization());
+            }
+            if (ast.getCondition() != null) {
+                visit(ast.getCondition());
+            }
+            resolve(ast.getStatements());
+            if (ast.getIncrement() != null) {
+                visit(ast.getIncrement());
+            }
+            ast.setFrameSize(block.slots.size());
+        } finally {
+            block = previous;
+        }
+        return null;
+    }
+
+    /**
+     * The condition is evaluated in the frame of the loop.
+     */
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        if (block == null) {
+            return null;
+        }
+        Block previous = block;
+        block = new Block(previous, declares(ast.getStatements()));
+        try {
+            visit(ast.getCondition());
+            resolve(ast.getStatements());
+            ast.setFrameSize(block.slots.size());
+        } finally {
+            block = previous;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Error ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            return null;
+        }
+        int depth = 0;
+        for (Block current = block; current != null; current = current.parent) {
+            Integer slot = current.slots.get(ast.getName());
+            if (slot != null) {
+                ast.setSlot(depth, slot);
+                return null;
+            } else if (current.frame) {
+                depth++;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+        }
+        for (Ast.Expression argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    private void resolve(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            visit(statement);
+        }
+    }
+
+    private static boolean declares(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Declaration) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The variables declared so far in a block, and whether the block has a
+     * frame at runtime.
+     */
+    private static final class Block {
+
+        private final Block parent;
+        private final boolean frame;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private Block(Block parent, boolean frame) {
+            this.parent = parent;
+            this.frame = frame;
+        }
+
+        /**
+         * Returns the slot of a variable declared in this block. Declaring a
+         * name twice reuses its slot, so the interpreter can report it.
+         */
+        private int declare(String name) {
+            return slots.computeIfAbsent(name, key -> slots.size());
+        }
+
+    }
+
+}
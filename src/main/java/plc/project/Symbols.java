@@ -0,0 +1,129 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A symbol table interning identifiers and operators as they are lexed, so
+ * every occurrence of a name shares one canonical string.
+ *
+ * Symbols are looked up directly against the source region, so repeated
+ * names never allocate. The first occurrence is added with {@link
+ * String#intern()}, which makes each symbol identical to any string constant
+ * with the same contents. Keywords such as {@code "LET"} in the {@link
+ * Parser} can therefore be compared by identity, and {@link Scope} lookups
+ * hit the identity and cached hash fast paths of {@link String}.
+ *
+ * Each lexer has its own table, which holds at most a maximum number of
+ * symbols so that streaming a source with many distinct names keeps bounded
+ * memory. Once full, the table is cleared and refilled by the names which
+ * follow. A symbol which is no longer in the table is still interned again
+ * to the same string, which the JVM shares while it is in use.
+ */
+public final class Symbols {
+
+    private static final int DEFAULT_MAXIMUM = 1 << 14;
+
+    private final int maximum;
+    private String[] table = new String[256];
+    private int size = 0;
+
+    public Symbols() {
+        this(DEFAULT_MAXIMUM);
+    }
+
+    /**
+     * Creates a table which holds at most maximum symbols.
+     */
+    public Symbols(int maximum) {
+        if (maximum < 1) {
+            throw new IllegalArgumentException("Invalid maximum " + maximum + ".");
+        }
+        this.maximum = maximum;
+    }
+
+    /**
+     * Returns the canonical symbol for {@code source[offset, offset + length)}.
+     */
+    public String intern(String source, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.charAt(offset + i);
+        }
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String symbol = table[i];
+            if (symbol == null) {
+                return insert(i, source.substring(offset, offset + length));
+            } else if (symbol.hashCode() == hash && symbol.length() == length
+                    && source.regionMatches(offset, symbol, 0, length)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical symbol for {@code buffer[offset, offset + length)}.
+     */
+    public String intern(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[offset + i];
+        }
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String symbol = table[i];
+            if (symbol == null) {
+                return insert(i, new String(buffer, offset, length));
+            } else if (symbol.hashCode() == hash && symbol.length() == length
+                    && matches(buffer, offset, symbol)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct symbols in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    private String insert(int slot, String value) {
+        String symbol = value.intern();
+        if (size == maximum) {
+            // the slot was empty, so it stays free after clearing
+            Arrays.fill(table, null);
+            size = 0;
+        }
+        table[slot] = symbol;
+        if (++size * 2 > table.length) {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String entry : old) {
+                if (entry != null) {
+                    int i = spread(entry.hashCode()) & mask;
+                    while (table[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = entry;
+                }
+            }
+        }
+        return symbol;
+    }
+
+    private static boolean matches(char[] buffer, int offset, String symbol) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (buffer[offset + i] != symbol.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
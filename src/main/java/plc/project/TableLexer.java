@@ -0,0 +1,397 @@
+package plc.project;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A drop-in alternative to {@link Lexer} which classifies characters through a
+ * precomputed table instead of matching a regex against every character.
+ *
+ * The structure mirrors {@link Lexer} method for method, and the two produce
+ * the same {@link Token}s and throw {@link ParseException}s at the same
+ * indices. Each character class used by the regex patterns of {@link Lexer}
+ * is a bit in {@link #CLASSES}, so a {@code peek} is a single array load.
+ */
+public final class TableLexer {
+
+    private static final int WHITESPACE = 1;       // [ \b\n\r\t]
+    private static final int IDENTIFIER_START = 2; // [A-Za-z_]
+    private static final int IDENTIFIER_PART = 4;  // [A-Za-z0-9_-]
+    private static final int DIGIT = 8;            // [0-9]
+    private static final int ESCAPE = 16;          // [bnrt'"\\]
+    private static final int OPERATOR = 32;        // [^\w\s]
+
+    private static final byte[] CLASSES = new byte[128];
+
+    // the largest value another digit can be appended to without overflow
+    private static final long MAX_UNSCALED = (Long.MAX_VALUE - 9) / 10;
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            int flags = 0;
+            boolean letter = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            boolean digit = c >= '0' && c <= '9';
+            if (c == ' ' || c == '\b' || c == '\n' || c == '\r' || c == '\t') {
+                flags |= WHITESPACE;
+            }
+            if (letter || c == '_') {
+                flags |= IDENTIFIER_START;
+            }
+            if (letter || digit || c == '_' || c == '-') {
+                flags |= IDENTIFIER_PART;
+            }
+            if (digit) {
+                flags |= DIGIT;
+            }
+            if ("bnrt'\"\\".indexOf(c) != -1) {
+                flags |= ESCAPE;
+            }
+            // \w is [a-zA-Z_0-9] and \s is [ \t\n\x0B\f\r] for Java regex
+            if (!letter && !digit && c != '_' && " \t\n\u000B\f\r".indexOf(c) == -1) {
+                flags |= OPERATOR;
+            }
+            CLASSES[c] = (byte) flags;
+        }
+    }
+
+    private final Lexer.CharStream chars;
+    private final StringBuilder decoded = new StringBuilder();
+    private final String input;
+    private final Sink tokenSink = new Sink() {
+
+        @Override
+        public boolean values() {
+            return true;
+        }
+
+        @Override
+        public Token emit(Token.Type type, Object value) {
+            return chars.emit(type, value);
+        }
+
+    };
+
+    public TableLexer(String input) {
+        this.chars = new Lexer.CharStream(input);
+        this.input = input;
+    }
+
+    public TableLexer(Reader reader) {
+        this.chars = new Lexer.CharStream(reader);
+        this.input = null;
+    }
+
+    public TableLexer(Lexer.CharStream chars) {
+        this.chars = chars;
+        this.input = null;
+    }
+
+    /**
+     * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
+     * whitespace where appropriate.
+     */
+    public List<Token> lex() {
+        List<Token> tokens = new ArrayList<>();
+        while (chars.has(0)) {
+            while (peek(WHITESPACE)) {
+                chars.advance();
+                chars.skip();
+            }
+            if (chars.has(0)) {
+                tokens.add(lexToken());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the input as in {@link #lex()}, but into {@link PackedTokens}
+     * without creating a {@link Token} for each token, and without computing
+     * values. Requires the lexer to be created from a string.
+     */
+    public PackedTokens lexPacked() {
+        if (input == null) {
+            throw new IllegalStateException("Packed tokens require a string input.");
+        }
+        PackedTokens packed = new PackedTokens(input);
+        Sink sink = new Sink() {
+
+            @Override
+            public boolean values() {
+                return false;
+            }
+
+            @Override
+            public Token emit(Token.Type type, Object value) {
+                chars.emitPacked(type, packed);
+                return null;
+            }
+
+        };
+        while (chars.has(0)) {
+            while (peek(WHITESPACE)) {
+                chars.advance();
+                chars.skip();
+            }
+            if (chars.has(0)) {
+                lexToken(sink);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Returns a {@link TokenSource} which lexes tokens on demand, as in
+     * {@link Lexer#tokens()}.
+     */
+    public TokenSource tokens() {
+        return () -> {
+            while (peek(WHITESPACE)) {
+                chars.advance();
+                chars.skip();
+            }
+            return chars.has(0) ? lexToken() : null;
+        };
+    }
+
+    /**
+     * Determines the type of the next token and delegates to the appropriate
+     * lex method, in the same order as {@link Lexer#lexToken()}.
+     */
+    public Token lexToken() {
+        return lexToken(tokenSink);
+    }
+
+    public Token lexIdentifier() {
+        return lexIdentifier(tokenSink);
+    }
+
+    /**
+     * Also accumulates the digits into an unscaled long, which becomes the
+     * value of the token without parsing the literal again. Literals which do
+     * not fit leave the value null for the parser to fall back on.
+     */
+    public Token lexNumber() {
+        return lexNumber(tokenSink);
+    }
+
+    /**
+     * Also decodes the literal, which becomes the value of the token.
+     */
+    public Token lexCharacter() {
+        return lexCharacter(tokenSink);
+    }
+
+    /**
+     * Also decodes the literal into {@link #decoded} in the same pass, so the
+     * value of the token is the only string allocated for it.
+     */
+    public Token lexString() {
+        return lexString(tokenSink);
+    }
+
+    public void lexEscape() {
+        if (!peek('\\')) {
+            throw new ParseException("Backslash must appear at beginning of escape sequence", chars.getIndex());
+        }
+        chars.advance();
+        if (!peek(ESCAPE)) {
+            throw new ParseException("Escape sequence is invalid", chars.getIndex());
+        }
+        chars.advance();
+    }
+
+    /**
+     * Note that {@link Lexer#lexOperator()} checks {@code peek("|", "|")}, and
+     * as a regex {@code "|"} only matches the empty string. This means
+     * {@code ||} is lexed as two {@code |} operators, which is mirrored here.
+     */
+    public Token lexOperator() {
+        return lexOperator(tokenSink);
+    }
+
+    private Token lexToken(Sink sink) {
+        if (peek(IDENTIFIER_START)) {
+            return lexIdentifier(sink);
+        } else if (peek('+') || peek('-') || peek(DIGIT)) {
+            return lexNumber(sink);
+        } else if (peek('\'')) {
+            return lexCharacter(sink);
+        } else if (peek('"')) {
+            return lexString(sink);
+        } else if (peek(OPERATOR)) {
+            return lexOperator(sink);
+        }
+        throw new ParseException("Unexpected character: " + chars.get(0), chars.getIndex());
+    }
+
+    private Token lexIdentifier(Sink sink) {
+        if (!peek(IDENTIFIER_START)) {
+            throw new ParseException("Incorrect beginning to identifier", chars.getIndex());
+        }
+        while (peek(IDENTIFIER_PART)) {
+            chars.advance();
+        }
+        return sink.emit(Token.Type.IDENTIFIER, null);
+    }
+
+    private Token lexNumber(Sink sink) {
+        boolean negative = peek('-');
+        if (peek('+') || peek('-')) {
+            chars.advance();
+        }
+        long unscaled = 0;
+        boolean overflow = false;
+        if (peek('0')) {
+            chars.advance();
+            if (peek(DIGIT)) {
+                throw new ParseException("There CANNOT be a leading zero", chars.getIndex());
+            }
+        } else if (peek(DIGIT)) {
+            while (peek(DIGIT)) {
+                if (unscaled > MAX_UNSCALED) {
+                    overflow = true;
+                }
+                unscaled = 10 * unscaled + (chars.get(0) - '0');
+                chars.advance();
+            }
+        } else {
+            throw new ParseException("Number cannot be formatted this way", chars.getIndex());
+        }
+
+        if (peek('.')) {
+            chars.advance();
+            if (!peek(DIGIT)) {
+                throw new ParseException("Invalid decimal format", chars.getIndex());
+            }
+            int scale = 0;
+            while (peek(DIGIT)) {
+                if (unscaled > MAX_UNSCALED) {
+                    overflow = true;
+                }
+                unscaled = 10 * unscaled + (chars.get(0) - '0');
+                scale++;
+                chars.advance();
+            }
+            return sink.emit(Token.Type.DECIMAL, overflow || !sink.values() ? null : BigDecimal.valueOf(negative ? -unscaled : unscaled, scale));
+        }
+        return sink.emit(Token.Type.INTEGER, overflow || !sink.values() ? null : BigInteger.valueOf(negative ? -unscaled : unscaled));
+    }
+
+    private Token lexCharacter(Sink sink) {
+        if (!peek('\'')) {
+            throw new ParseException("Character literal not initialized with single quote", chars.getIndex());
+        }
+        chars.advance();
+        char value;
+        if (peek('\\')) {
+            chars.advance();
+            if (!peek(ESCAPE)) {
+                throw new ParseException("This escape sequence is not covered", chars.getIndex());
+            }
+            value = Lexer.unescape(chars.get(0));
+            chars.advance();
+        } else if (chars.has(0) && !peek('\'') && !peek('\n') && !peek('\r')) {
+            value = chars.get(0);
+            chars.advance();
+        } else {
+            throw new ParseException("This is an invalid character literal", chars.getIndex());
+        }
+        if (!peek('\'')) {
+            throw new ParseException("Character literal not terminated with single quote", chars.getIndex());
+        }
+        chars.advance();
+        return sink.emit(Token.Type.CHARACTER, value);
+    }
+
+    private Token lexString(Sink sink) {
+        if (!peek('"')) {
+            throw new ParseException("String literal must start with a double quote ", chars.getIndex());
+        }
+        chars.advance();
+        decoded.setLength(0);
+        while (!peek('"') && !peek('\n') && !peek('\r')) {
+            if (peek('\\')) {
+                chars.advance();
+                if (!peek(ESCAPE)) {
+                    throw new ParseException("Invalid escape sequence in string", chars.getIndex());
+                }
+                decoded.append(Lexer.unescape(chars.get(0)));
+                chars.advance();
+            } else if (chars.has(0)) {
+                decoded.append(chars.get(0));
+                chars.advance();
+            } else {
+                throw new ParseException("Invalid character in string", chars.getIndex());
+            }
+        }
+        if (!peek('"')) {
+            throw new ParseException("Unterminated string literal", chars.getIndex());
+        }
+        chars.advance();
+        return sink.emit(Token.Type.STRING, sink.values() ? decoded.toString() : null);
+    }
+
+    private Token lexOperator(Sink sink) {
+        if (chars.has(1)) {
+            char first = chars.get(0);
+            char second = chars.get(1);
+            if (first == '&' && second == '&'
+                    || second == '=' && (first == '=' || first == '!' || first == '<' || first == '>')) {
+                chars.advance();
+                chars.advance();
+                return sink.emit(Token.Type.OPERATOR, null);
+            }
+        }
+        if (peek(OPERATOR)) {
+            chars.advance();
+            return sink.emit(Token.Type.OPERATOR, null);
+        }
+        throw new ParseException("Operator is not valid", chars.getIndex());
+    }
+
+    /**
+     * Returns true if the next character belongs to any of the classes in the
+     * given mask. Characters outside of ASCII are never {@code \w} or
+     * {@code \s}, so they only belong to {@link #OPERATOR}.
+     */
+    private boolean peek(int mask) {
+        if (!chars.has(0)) {
+            return false;
+        }
+        char c = chars.get(0);
+        return c < 128 ? (CLASSES[c] & mask) != 0 : (mask & OPERATOR) != 0;
+    }
+
+    /**
+     * Returns true if the next character is exactly the given character.
+     */
+    private boolean peek(char c) {
+        return chars.has(0) && chars.get(0) == c;
+    }
+
+    /**
+     * Receives the tokens lexed by the private lex methods, either as {@link
+     * Token}s for the public methods or into {@link PackedTokens} for {@link
+     * #lexPacked()}.
+     */
+    private interface Sink {
+
+        /**
+         * Returns whether the sink uses the values of tokens, which are only
+         * computed if it does.
+         */
+        boolean values();
+
+        /**
+         * Emits the token ending at the current character, returning it if
+         * the sink creates a {@link Token}.
+         */
+        Token emit(Token.Type type, Object value);
+
+    }
+
+}
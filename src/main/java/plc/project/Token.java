@@ -1,5 +1,16 @@
 package plc.project;
 
+/**
+ * A token is stored as a region ({@code offset}, {@code length}) of a shared
+ * source string, so lexing does not allocate a string per token. The literal
+ * is only materialized by {@link #getLiteral()} when it is first requested,
+ * and comparisons such as {@link #literalEquals(String)} work directly on the
+ * source. Identifiers and operators from the lexer are also interned through
+ * {@link Symbols}, see {@link #isSymbol()}.
+ *
+ * {@link TableLexer} also computes the value of numeric literals while
+ * scanning them, which is available through {@link #getValue()}.
+ */
 public final class Token {
 
     public enum Type {
@@ -12,13 +23,47 @@ public final class Token {
     }
 
     private final Type type;
-    private final String literal;
+    private final String source;
+    private final int offset;
+    private final int length;
     private final int index;
+    private final boolean symbol;
+    private final Object value;
+    private String literal;
 
     public Token(Type type, String literal, int index) {
+        this(type, literal, 0, literal.length(), index, literal, false, null);
+    }
+
+    /**
+     * Creates a token for the region of source starting at index, where index
+     * is both the offset into source and the index of the token.
+     */
+    public Token(Type type, String source, int index, int length) {
+        this(type, source, index, length, index, null, false, null);
+    }
+
+    /**
+     * Creates a token whose literal is the canonical symbol returned by
+     * {@link Symbols#intern(String, int, int)} for the region of source.
+     */
+    Token(Type type, String source, int offset, int length, int index, String symbol) {
+        this(type, source, offset, length, index, symbol, true, null);
+    }
+
+    /**
+     * Creates a token for the region of source with the value of its literal
+     * as computed by the lexer, see {@link #getValue()}.
+     */
+    Token(Type type, String source, int offset, int length, int index, String literal, boolean symbol, Object value) {
         this.type = type;
-        this.literal = literal;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
         this.index = index;
+        this.literal = literal;
+        this.symbol = symbol;
+        this.value = value;
     }
 
     public Type getType() {
@@ -26,6 +71,9 @@ public final class Token {
     }
 
     public String getLiteral() {
+        if (literal == null) {
+            literal = source.substring(offset, offset + length);
+        }
         return literal;
     }
 
@@ -33,17 +81,57 @@ public final class Token {
         return index;
     }
 
+    /**
+     * Returns the length of the literal without materializing it.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the value of the literal if it was computed by the lexer, such
+     * as a {@link java.math.BigInteger} for an {@code INTEGER}, or null.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns true if the literal is an interned symbol, in which case it is
+     * identical to any string constant with the same contents.
+     */
+    public boolean isSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns true if the literal is equal to value, comparing against the
+     * source directly instead of materializing the literal.
+     */
+    public boolean literalEquals(String value) {
+        return length == value.length() && source.regionMatches(offset, value, 0, length);
+    }
+
+    /**
+     * Returns this token with its index shifted by delta, still backed by the
+     * same region of the same source.
+     */
+    Token shift(int delta) {
+        return delta == 0 ? this : new Token(type, source, offset, length, index + delta, literal, symbol, value);
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
                 && type == ((Token) obj).type
-                && literal.equals(((Token) obj).literal)
-                && index == ((Token) obj).index;
+                && index == ((Token) obj).index
+                && length == ((Token) obj).length
+                && source.regionMatches(offset, ((Token) obj).source, ((Token) obj).offset, length);
     }
 
     @Override
     public String toString() {
-        return type + "=" + literal + "@" + index;
+        return type + "=" + getLiteral() + "@" + index;
     }
 
 }
@@ -0,0 +1,28 @@
+package plc.project;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A pull-based source of tokens, which allows the {@link Parser} to consume
+ * tokens as they are lexed instead of from a fully materialized list. See
+ * {@link Lexer#tokens()} and {@link TableLexer#tokens()}.
+ */
+@FunctionalInterface
+public interface TokenSource {
+
+    /**
+     * Returns the next token, or {@code null} once the input is exhausted.
+     * Lexing errors are thrown as a {@link ParseException} from this method.
+     */
+    Token next() throws ParseException;
+
+    /**
+     * Returns a source over an already lexed list of tokens.
+     */
+    static TokenSource of(List<Token> tokens) {
+        Iterator<Token> iterator = tokens.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+}
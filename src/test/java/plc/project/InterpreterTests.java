@@ -356,6 +356,20 @@ final class InterpreterTests {
                         ),
                         BigInteger.valueOf(11)
                 ),
+                Arguments.of("Addition (Overflow)",
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MAX_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.ONE)
+                        ),
+                        BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)
+                ),
+                Arguments.of("Multiplication (Overflow)",
+                        new Ast.Expression.Binary("*",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MIN_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        BigInteger.valueOf(Long.MIN_VALUE).negate()
+                ),
                 Arguments.of("Division",
                         new Ast.Expression.Binary("/",
                                 new Ast.Expression.Literal(new BigDecimal("1.2")),
@@ -366,6 +380,148 @@ final class InterpreterTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testOptimizer(String test, Ast.Expression ast, Ast.Expression expected) {
+        Ast optimized = new Optimizer().visit(ast);
+        Assertions.assertEquals(expected, optimized);
+        if (expected instanceof Ast.Expression.Literal) {
+            test(ast, ((Ast.Expression.Literal) expected).getLiteral(), new Scope(null));
+        }
+    }
+
+    private static Stream<Arguments> testOptimizer() {
+        Ast.Expression.Access integer = new Ast.Expression.Access(Optional.empty(), "x");
+        integer.setVariable(new Environment.Variable("x", "x", Environment.Type.INTEGER, false, Environment.NIL));
+        Ast.Expression.Binary overflow = new Ast.Expression.Binary("+",
+                new Ast.Expression.Literal(BigInteger.valueOf(Integer.MAX_VALUE)),
+                new Ast.Expression.Literal(BigInteger.ONE)
+        );
+        Ast.Expression.Binary zero = new Ast.Expression.Binary("/",
+                new Ast.Expression.Literal(BigInteger.ONE),
+                new Ast.Expression.Literal(BigInteger.ZERO)
+        );
+        Ast.Expression.Binary negation = new Ast.Expression.Binary("||",
+                new Ast.Expression.Literal(false),
+                integer
+        );
+        return Stream.of(
+                Arguments.of("Fold",
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Group(new Ast.Expression.Binary("*",
+                                        new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                        new Ast.Expression.Literal(BigInteger.valueOf(3))
+                                )),
+                                new Ast.Expression.Literal(BigInteger.valueOf(4))
+                        ),
+                        new Ast.Expression.Literal(BigInteger.TEN)
+                ),
+                Arguments.of("Decimal Division",
+                        new Ast.Expression.Binary("/",
+                                new Ast.Expression.Literal(new BigDecimal("1.2")),
+                                new Ast.Expression.Literal(new BigDecimal("3.4"))
+                        ),
+                        new Ast.Expression.Literal(new BigDecimal("0.4"))
+                ),
+                Arguments.of("Multiplicative Identity",
+                        new Ast.Expression.Binary("*", integer, new Ast.Expression.Literal(BigInteger.ONE)),
+                        integer
+                ),
+                Arguments.of("Additive Identity",
+                        new Ast.Expression.Group(new Ast.Expression.Binary("+", new Ast.Expression.Literal(BigInteger.ZERO), integer)),
+                        integer
+                ),
+                Arguments.of("Or (Short Circuit)",
+                        new Ast.Expression.Binary("||",
+                                new Ast.Expression.Literal(true),
+                                new Ast.Expression.Access(Optional.empty(), "undefined")
+                        ),
+                        new Ast.Expression.Literal(true)
+                ),
+                Arguments.of("And (Short Circuit)",
+                        new Ast.Expression.Binary("&&",
+                                new Ast.Expression.Literal(false),
+                                new Ast.Expression.Access(Optional.empty(), "undefined")
+                        ),
+                        new Ast.Expression.Literal(false)
+                ),
+                Arguments.of("Or (Negation)", negation, negation),
+                Arguments.of("Overflow", overflow, overflow),
+                Arguments.of("Divide by Zero", zero, zero)
+        );
+    }
+
+    @Test
+    void testResolver() {
+        String input = "LET scale = 3;\n" +
+                "DEF main() DO\n" +
+                "    LET x = 1;\n" +
+                "    WHILE x < 100 DO\n" +
+                "        IF x < 50 DO\n" +
+                "            LET y = x * 2;\n" +
+                "            x = y;\n" +
+                "        ELSE\n" +
+                "            x = x * scale;\n" +
+                "        END\n" +
+                "    END\n" +
+                "    RETURN x;\n" +
+                "END\n";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Resolver().visit(source);
+        Ast.Method main = source.getMethods().get(0);
+        Ast.Statement.While loop = (Ast.Statement.While) main.getStatements().get(1);
+        Ast.Statement.If branch = (Ast.Statement.If) loop.getStatements().get(0);
+        Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) branch.getThenStatements().get(1);
+        Ast.Expression.Binary product = (Ast.Expression.Binary) ((Ast.Statement.Assignment) branch.getElseStatements().get(0)).getValue();
+        Assertions.assertEquals(1, main.getFrameSize());
+        Assertions.assertEquals(0, loop.getFrameSize());
+        Assertions.assertEquals(1, branch.getFrameSize());
+        Assertions.assertEquals(0, ((Ast.Statement.Declaration) branch.getThenStatements().get(0)).getSlot());
+        Assertions.assertEquals(1, ((Ast.Expression.Access) assignment.getReceiver()).getDepth());
+        Assertions.assertEquals(0, ((Ast.Expression.Access) assignment.getValue()).getDepth());
+        Assertions.assertEquals(-1, ((Ast.Expression.Access) product.getRight()).getSlot());
+        Assertions.assertEquals(BigInteger.valueOf(192), new Interpreter(null).visit(source).getValue());
+    }
+
+    @Test
+    void testReturn() {
+        String input = "DEF f(n) DO\n" +
+                "    WHILE TRUE DO\n" +
+                "        IF n > 10 DO\n" +
+                "            RETURN n;\n" +
+                "        END\n" +
+                "        n = n * 2;\n" +
+                "    END\n" +
+                "    RETURN 0;\n" +
+                "END\n" +
+                "DEF main() DO\n" +
+                "    RETURN f(1) * f(20);\n" +
+                "    RETURN 0;\n" +
+                "END\n";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(BigInteger.valueOf(320), new Interpreter(null).visit(source).getValue());
+        new Resolver().visit(source);
+        Assertions.assertEquals(BigInteger.valueOf(320), new Interpreter(null).visit(source).getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> new Interpreter(null).visit(
+                new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ONE))
+        ));
+    }
+
+    @Test
+    void testValueCache() {
+        Assertions.assertSame(Environment.TRUE, Environment.create(true));
+        Assertions.assertSame(Environment.FALSE, new Interpreter(null).visit(new Ast.Expression.Binary("<",
+                new Ast.Expression.Literal(BigInteger.TEN),
+                new Ast.Expression.Literal(BigInteger.ONE)
+        )));
+        Assertions.assertSame(Environment.create(BigInteger.valueOf(-128)), Environment.createInteger(-128));
+        Assertions.assertSame(Environment.create(BigInteger.valueOf(1023)), Environment.createInteger(1023));
+        Assertions.assertNotSame(Environment.createInteger(1024), Environment.createInteger(1024));
+        Ast.Expression.Literal literal = new Ast.Expression.Literal("string");
+        Interpreter interpreter = new Interpreter(null);
+        Assertions.assertSame(interpreter.visit(literal), interpreter.visit(literal));
+    }
+
     private static Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
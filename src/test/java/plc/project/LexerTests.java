@@ -6,8 +6,14 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class LexerTests {
@@ -136,6 +142,173 @@ public class LexerTests {
         Assertions.assertEquals(13, exception.getIndex());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testTableLexer(String test, String input) {
+        Assertions.assertEquals(lex(() -> new Lexer(input).lex()), lex(() -> new TableLexer(input).lex()));
+    }
+
+    private static Stream<Arguments> testTableLexer() {
+        return Stream.of(
+                Arguments.of("Example 1", "LET x = 5;"),
+                Arguments.of("Example 2", "print(\"Hello, World!\");"),
+                Arguments.of("Escapes", "'\\n' \"a\\tb\\\"c\""),
+                Arguments.of("Numbers", "0 -1 +2.50 123.456"),
+                Arguments.of("Operators", "a<=b && c!=d || e==f"),
+                Arguments.of("Unicode Operator", "x \u00e9 y"),
+                Arguments.of("Leading Zero", "01"),
+                Arguments.of("Trailing Decimal", "1."),
+                Arguments.of("Unterminated String", "\"unterminated"),
+                Arguments.of("Newline In String", "\"abc\ndef\""),
+                Arguments.of("Invalid Escape", "'\\q'"),
+                Arguments.of("Form Feed", "a\fb")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testTableLexer")
+    void testReader(String test, String input) {
+        //a tiny buffer forces the window to slide and grow within tokens
+        Assertions.assertEquals(lex(() -> new Lexer(input).lex()), lex(() -> new TableLexer(new Lexer.CharStream(new StringReader(input), 2)).lex()));
+    }
+
+    @Test
+    void testTokenSource() {
+        String input = "LET x = \"a long string literal\";";
+        TokenSource source = new TableLexer(new Lexer.CharStream(new StringReader(input), 4)).tokens();
+        List<Token> tokens = new ArrayList<>();
+        for (Token token = source.next(); token != null; token = source.next()) {
+            tokens.add(token);
+        }
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+    }
+
+    @Test
+    void testPackedTokens() {
+        String input = "LET x = \"string\" != 'c' * -1.5;";
+        PackedTokens packed = new TableLexer(input).lexPacked();
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < packed.size(); i++) {
+            tokens.add(packed.get(i));
+        }
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+        Assertions.assertSame("LET", packed.getLiteral(0));
+    }
+
+    @Test
+    void testSourceBackedToken() {
+        Token token = new TableLexer("LET name = 1;").lex().get(1);
+        Assertions.assertEquals(new Token(Token.Type.IDENTIFIER, "name", 4), token);
+        Assertions.assertTrue(token.literalEquals("name"));
+        Assertions.assertFalse(token.literalEquals("nam"));
+        Assertions.assertEquals(4, token.getLength());
+        Assertions.assertEquals("name", token.getLiteral());
+    }
+
+    @Test
+    void testSymbols() {
+        List<Token> tokens = new TableLexer("LET name = name; LET other = name;").lex();
+        Assertions.assertSame("LET", tokens.get(0).getLiteral());
+        Assertions.assertSame(tokens.get(1).getLiteral(), tokens.get(3).getLiteral());
+        Assertions.assertSame(tokens.get(1).getLiteral(), tokens.get(8).getLiteral());
+        Assertions.assertSame(";", tokens.get(4).getLiteral());
+        Assertions.assertTrue(tokens.get(1).isSymbol());
+        // the table is bounded, but symbols are still canonical once evicted
+        Symbols symbols = new Symbols(4);
+        String first = symbols.intern("name0", 0, 5);
+        for (int i = 0; i < 100; i++) {
+            symbols.intern("name" + i, 0, ("name" + i).length());
+        }
+        Assertions.assertTrue(symbols.size() <= 4);
+        Assertions.assertSame(first, symbols.intern("name0".toCharArray(), 0, 5));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testNumberValue(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, new TableLexer(input).lexToken().getValue());
+    }
+
+    private static Stream<Arguments> testNumberValue() {
+        return Stream.of(
+                Arguments.of("Integer", "123", new BigInteger("123")),
+                Arguments.of("Negative Integer", "-123", new BigInteger("-123")),
+                Arguments.of("Signed Zero", "+0", BigInteger.ZERO),
+                Arguments.of("Long Integer", "9223372036854775799", new BigInteger("9223372036854775799")),
+                Arguments.of("Overflow", "123456789012345678901234567890", null),
+                Arguments.of("Decimal", "-1.50", new BigDecimal("-1.50")),
+                Arguments.of("Decimal Overflow", "1.23456789012345678901234567890", null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testParallelLexer(String test, String input) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunk = 1; chunk <= 8; chunk++) {
+                int size = chunk;
+                Assertions.assertEquals(lex(() -> new TableLexer(input).lex()), lex(() -> new ParallelLexer(input, pool, size).lex()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallelLexer() {
+        return Stream.of(
+                Arguments.of("Lines", "LET x = 1;\nLET y = \"two\";\nDEF f() DO\n    RETURN 'c';\nEND\n"),
+                Arguments.of("Trailing", "a\nb\nc"),
+                Arguments.of("Blank Lines", "\n\n\nx\n\n"),
+                Arguments.of("Unterminated String", "LET x = 1;\nLET y = \"two;\nLET z = 3;\n"),
+                Arguments.of("Earliest Error", "a\n'ab'\nb\n\"c\nd\n"),
+                Arguments.of("Unexpected Character", "a b c\nd \f e\n")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testIncrementalLexer(String test, String input, int offset, int removed, String inserted) {
+        IncrementalLexer lexer = new IncrementalLexer(input);
+        String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        Assertions.assertEquals(lex(() -> new TableLexer(edited).lex()), lex(() -> lexer.edit(offset, removed, inserted)));
+        Assertions.assertEquals(edited, lexer.getSource());
+    }
+
+    private static Stream<Arguments> testIncrementalLexer() {
+        String source = "LET x = 1;\nLET name = \"string\";\nDEF f() DO\n    RETURN 'c';\nEND\n";
+        return Stream.of(
+                Arguments.of("Extend Identifier", source, 5, 0, "yz"),
+                Arguments.of("Split Identifier", source, 18, 0, " "),
+                Arguments.of("Join Tokens", source, 3, 1, ""),
+                Arguments.of("Inside String", source, 25, 2, "\\n"),
+                Arguments.of("Operator", source, 6, 1, "=="),
+                Arguments.of("Replace Line", source, 11, 22, "LET y = 2.5;"),
+                Arguments.of("Append", source, source.length(), 0, "print(x);"),
+                Arguments.of("Delete All", source, 0, source.length(), ""),
+                Arguments.of("Unterminated String", source, 22, 1, "")
+        );
+    }
+
+    @Test
+    void testIncrementalLexerRecovery() {
+        IncrementalLexer lexer = new IncrementalLexer("LET x = \"a\";\nLET y = 1;");
+        Assertions.assertThrows(ParseException.class, () -> lexer.edit(8, 3, "\"ab"));
+        Assertions.assertEquals(new TableLexer("LET x = \"abc\";\nLET y = 1;").lex(), lexer.edit(11, 0, "c\""));
+    }
+
+    /**
+     * Lexes using the given lexer, returning either the tokens or the index
+     * and message of the {@link ParseException} so both can be compared.
+     */
+    private static Object lex(Supplier<List<Token>> lexer) {
+        try {
+            return lexer.get();
+        } catch (ParseException e) {
+            return e.getIndex() + ": " + e.getMessage();
+        }
+    }
+
     /**
      * Tests that lexing the input through {@link Lexer#lexToken()} produces a
      * single token with the expected type and literal matching the input.
@@ -100,6 +100,14 @@ final class ParserExpressionTests {
                 Arguments.of("Escape Character 2",
                         Arrays.asList(new Token(Token.Type.CHARACTER, "'\\''", 0)),
                         new Ast.Expression.Literal('\'')
+                ),
+                Arguments.of("Escaped Backslash",
+                        Arrays.asList(new Token(Token.Type.STRING, "\"\\\\n\\t\\\"\"", 0)),
+                        new Ast.Expression.Literal("\\n\t\"")
+                ),
+                Arguments.of("Lexed Escapes",
+                        new TableLexer("\"a\\\\n\\bb\\rc\"").lex(),
+                        new Ast.Expression.Literal("a\\n\bb\rc")
                 )
         );
     }
@@ -193,6 +201,208 @@ final class ParserExpressionTests {
                                 new Ast.Expression.Access(Optional.empty(), "expr1"),
                                 new Ast.Expression.Access(Optional.empty(), "expr2")
                         )
+                ),
+                Arguments.of("Logical Left Associative",
+                        Arrays.asList(
+                                // a && b || c
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "&&", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 5),
+                                new Token(Token.Type.OPERATOR, "||", 7),
+                                new Token(Token.Type.IDENTIFIER, "c", 10)
+                        ),
+                        new Ast.Expression.Binary("||",
+                                new Ast.Expression.Binary("&&",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "c")
+                        )
+                ),
+                Arguments.of("Equality Left Associative",
+                        Arrays.asList(
+                                // a < b == c
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "<", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "==", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 9)
+                        ),
+                        new Ast.Expression.Binary("==",
+                                new Ast.Expression.Binary("<",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "c")
+                        )
+                ),
+                Arguments.of("Additive Left Associative",
+                        Arrays.asList(
+                                // a - b + c
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "-", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "+", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 8)
+                        ),
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Binary("-",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "c")
+                        )
+                ),
+                Arguments.of("Multiplicative Left Associative",
+                        Arrays.asList(
+                                // a / b * c
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "/", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "*", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 8)
+                        ),
+                        new Ast.Expression.Binary("*",
+                                new Ast.Expression.Binary("/",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "c")
+                        )
+                ),
+                Arguments.of("Increasing Precedence",
+                        Arrays.asList(
+                                // a || b < c + d * e
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "||", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 5),
+                                new Token(Token.Type.OPERATOR, "<", 7),
+                                new Token(Token.Type.IDENTIFIER, "c", 9),
+                                new Token(Token.Type.OPERATOR, "+", 11),
+                                new Token(Token.Type.IDENTIFIER, "d", 13),
+                                new Token(Token.Type.OPERATOR, "*", 15),
+                                new Token(Token.Type.IDENTIFIER, "e", 17)
+                        ),
+                        new Ast.Expression.Binary("||",
+                                new Ast.Expression.Access(Optional.empty(), "a"),
+                                new Ast.Expression.Binary("<",
+                                        new Ast.Expression.Access(Optional.empty(), "b"),
+                                        new Ast.Expression.Binary("+",
+                                                new Ast.Expression.Access(Optional.empty(), "c"),
+                                                new Ast.Expression.Binary("*",
+                                                        new Ast.Expression.Access(Optional.empty(), "d"),
+                                                        new Ast.Expression.Access(Optional.empty(), "e")
+                                                )
+                                        )
+                                )
+                        )
+                ),
+                Arguments.of("Decreasing Precedence",
+                        Arrays.asList(
+                                // a * b + c < d && e
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "*", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "+", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 8),
+                                new Token(Token.Type.OPERATOR, "<", 10),
+                                new Token(Token.Type.IDENTIFIER, "d", 12),
+                                new Token(Token.Type.OPERATOR, "&&", 14),
+                                new Token(Token.Type.IDENTIFIER, "e", 17)
+                        ),
+                        new Ast.Expression.Binary("&&",
+                                new Ast.Expression.Binary("<",
+                                        new Ast.Expression.Binary("+",
+                                                new Ast.Expression.Binary("*",
+                                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                                ),
+                                                new Ast.Expression.Access(Optional.empty(), "c")
+                                        ),
+                                        new Ast.Expression.Access(Optional.empty(), "d")
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "e")
+                        )
+                ),
+                Arguments.of("Mixed Precedence",
+                        Arrays.asList(
+                                // a && b == c - d / e || f
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "&&", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 5),
+                                new Token(Token.Type.OPERATOR, "==", 7),
+                                new Token(Token.Type.IDENTIFIER, "c", 10),
+                                new Token(Token.Type.OPERATOR, "-", 12),
+                                new Token(Token.Type.IDENTIFIER, "d", 14),
+                                new Token(Token.Type.OPERATOR, "/", 16),
+                                new Token(Token.Type.IDENTIFIER, "e", 18),
+                                new Token(Token.Type.OPERATOR, "||", 20),
+                                new Token(Token.Type.IDENTIFIER, "f", 23)
+                        ),
+                        new Ast.Expression.Binary("||",
+                                new Ast.Expression.Binary("&&",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Binary("==",
+                                                new Ast.Expression.Access(Optional.empty(), "b"),
+                                                new Ast.Expression.Binary("-",
+                                                        new Ast.Expression.Access(Optional.empty(), "c"),
+                                                        new Ast.Expression.Binary("/",
+                                                                new Ast.Expression.Access(Optional.empty(), "d"),
+                                                                new Ast.Expression.Access(Optional.empty(), "e")
+                                                        )
+                                                )
+                                        )
+                                ),
+                                new Ast.Expression.Access(Optional.empty(), "f")
+                        )
+                ),
+                Arguments.of("Same Precedence Operands",
+                        Arrays.asList(
+                                // a + b == c + d
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "+", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "==", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 9),
+                                new Token(Token.Type.OPERATOR, "+", 11),
+                                new Token(Token.Type.IDENTIFIER, "d", 13)
+                        ),
+                        new Ast.Expression.Binary("==",
+                                new Ast.Expression.Binary("+",
+                                        new Ast.Expression.Access(Optional.empty(), "a"),
+                                        new Ast.Expression.Access(Optional.empty(), "b")
+                                ),
+                                new Ast.Expression.Binary("+",
+                                        new Ast.Expression.Access(Optional.empty(), "c"),
+                                        new Ast.Expression.Access(Optional.empty(), "d")
+                                )
+                        )
+                ),
+                Arguments.of("Group In Chain",
+                        Arrays.asList(
+                                // a - (b - c) * d
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "-", 2),
+                                new Token(Token.Type.OPERATOR, "(", 4),
+                                new Token(Token.Type.IDENTIFIER, "b", 5),
+                                new Token(Token.Type.OPERATOR, "-", 7),
+                                new Token(Token.Type.IDENTIFIER, "c", 9),
+                                new Token(Token.Type.OPERATOR, ")", 10),
+                                new Token(Token.Type.OPERATOR, "*", 12),
+                                new Token(Token.Type.IDENTIFIER, "d", 14)
+                        ),
+                        new Ast.Expression.Binary("-",
+                                new Ast.Expression.Access(Optional.empty(), "a"),
+                                new Ast.Expression.Binary("*",
+                                        new Ast.Expression.Group(
+                                            new Ast.Expression.Binary("-",
+                                                    new Ast.Expression.Access(Optional.empty(), "b"),
+                                                    new Ast.Expression.Access(Optional.empty(), "c")
+                                            )
+                                        ),
+                                        new Ast.Expression.Access(Optional.empty(), "d")
+                                )
+                        )
                 )
         );
     }
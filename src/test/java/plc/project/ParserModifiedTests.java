@@ -2,16 +2,28 @@ package plc.project;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -555,6 +567,300 @@ final class ParserModifiedTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testTokenSource() {
+        String input = "LET first: Integer = 1;\n" +
+                "DEF main(): Integer DO\n" +
+                "    WHILE first != 10 DO\n" +
+                "        print(first);\n" +
+                "        first = first * 2;\n" +
+                "    END\n" +
+                "END";
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new TableLexer(new StringReader(input)).tokens()).parseSource());
+        Parser parser = new Parser(new Lexer(input).lex());
+        Assertions.assertTrue(parser.peek(new String("LET")));
+        Assertions.assertTrue(parser.peek("LET", input.substring(4, 9)));
+    }
+
+    @Test
+    void testPackedTokens() {
+        String input = "LET first: Integer = 1;\n" +
+                "DEF main(): Integer DO\n" +
+                "    WHILE first != 10 DO\n" +
+                "        print(first.name, \"string\");\n" +
+                "        first = first * 2.5;\n" +
+                "    END\n" +
+                "END";
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new TableLexer(input).lexPacked()).parseSource());
+        ParseException exception = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(new TableLexer("LET first = 1").lexPacked()).parseSource());
+        Assertions.assertEquals(13, exception.getIndex());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testParallelParser(String test, String input) {
+        List<Token> tokens = new Lexer(input).lex();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Object expected = parse(() -> new Parser(tokens).parseSource());
+            for (int batch = 1; batch <= 16; batch *= 2) {
+                int size = batch;
+                Assertions.assertEquals(expected, parse(() -> new ParallelParser(tokens, pool, size).parseSource()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallelParser() {
+        String methods = "DEF first() DO\n" +
+                "    IF a DO WHILE b DO c; END ELSE d; END\n" +
+                "END\n" +
+                "DEF second(x): Integer DO\n" +
+                "    FOR (i = 0; i < x; i = i * 2) print(i); END\n" +
+                "    RETURN x;\n" +
+                "END\n" +
+                "DEF third() DO END\n";
+        return Stream.of(
+                Arguments.of("Methods", "LET x: Integer = 1;\n" + methods),
+                Arguments.of("Field After Method", methods + "LET x = 1;"),
+                Arguments.of("Missing End", "LET x = 1;\n" + methods.replaceFirst("END\n", "")),
+                Arguments.of("Invalid Statement", methods.replace("RETURN x;", "RETURN ;"))
+        );
+    }
+
+    /**
+     * Parses using the given function, returning either the source or a
+     * {@link Failure} with the {@link ParseException} so both can be compared.
+     */
+    private static Object parse(Supplier<Ast.Source> parser) {
+        try {
+            return parser.get().toString();
+        } catch (ParseException e) {
+            return new Failure(e);
+        }
+    }
+
+    /**
+     * The index and message of a {@link ParseException}, which does not
+     * define equality itself.
+     */
+    private static final class Failure {
+
+        private final int index;
+        private final String message;
+
+        private Failure(ParseException exception) {
+            this.index = exception.getIndex();
+            this.message = exception.getMessage();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Failure
+                    && index == ((Failure) obj).index
+                    && Objects.equals(message, ((Failure) obj).message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, message);
+        }
+
+        @Override
+        public String toString() {
+            return index + ": " + message;
+        }
+
+    }
+
+    @Test
+    void testRecovery() {
+        String input = "LET first = ;\n" +
+                "DEF main() DO\n" +
+                "    print(;\n" +
+                "    first = 1;\n" +
+                "    IF first DO\n" +
+                "        RETURN 1 2;\n" +
+                "    END\n" +
+                "END\n" +
+                "DEF other( DO\n" +
+                "END";
+        List<Token> tokens = new Lexer(input).lex();
+        List<ParseException> errors = new ArrayList<>();
+        Ast.Source source = new Parser(tokens).parseSource(errors);
+        ParseException first = Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource());
+        Assertions.assertEquals(4, errors.size(), errors.toString());
+        Assertions.assertEquals(first.getIndex(), errors.get(0).getIndex());
+        Assertions.assertEquals(first.getMessage(), errors.get(0).getMessage());
+        Assertions.assertEquals(Arrays.asList(), source.getFields());
+        Assertions.assertEquals(1, source.getMethods().size());
+        List<Ast.Statement> statements = source.getMethods().get(0).getStatements();
+        Assertions.assertEquals(Arrays.asList(
+                new Ast.Statement.Error(errors.get(1)),
+                new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "first"), new Ast.Expression.Literal(BigInteger.ONE)),
+                new Ast.Statement.If(new Ast.Expression.Access(Optional.empty(), "first"), Arrays.asList(new Ast.Statement.Error(errors.get(2))), Arrays.asList())
+        ), statements);
+        Assertions.assertEquals(new Ast.Statement.Error(errors.get(1)).hashCode(), statements.get(0).hashCode());
+    }
+
+    @Test
+    void testSpans() {
+        String input = "LET x = 1;\nDEF main() DO\n    print(x * (y.z / 2));\nEND";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Ast.Field field = source.getFields().get(0);
+        Ast.Method method = source.getMethods().get(0);
+        Ast.Statement statement = method.getStatements().get(0);
+        Ast.Expression.Binary binary = (Ast.Expression.Binary) ((Ast.Expression.Function) ((Ast.Statement.Expression) statement).getExpression()).getArguments().get(0);
+        Ast.Expression group = binary.getRight();
+        Ast.Expression access = ((Ast.Expression.Binary) ((Ast.Expression.Group) group).getExpression()).getLeft();
+        Assertions.assertEquals(input, input.substring(source.getStart(), source.getEnd()));
+        Assertions.assertEquals("LET x = 1;", input.substring(field.getStart(), field.getEnd()));
+        Assertions.assertEquals(input.substring(11), input.substring(method.getStart(), method.getEnd()));
+        Assertions.assertEquals("print(x * (y.z / 2));", input.substring(statement.getStart(), statement.getEnd()));
+        Assertions.assertEquals("x * (y.z / 2)", input.substring(binary.getStart(), binary.getEnd()));
+        Assertions.assertEquals("(y.z / 2)", input.substring(group.getStart(), group.getEnd()));
+        Assertions.assertEquals("y.z", input.substring(access.getStart(), access.getEnd()));
+        Assertions.assertEquals(-1, new Ast.Expression.Literal(null).getStart());
+    }
+
+    @Test
+    void testFlatAst() throws IOException {
+        String input = "LET x: Integer = 1;\n" +
+                "DEF main(a, b): Integer DO\n" +
+                "    LET y = 'c';\n" +
+                "    IF a DO WHILE b DO c.d(1, \"s\"); END ELSE RETURN NIL; END\n" +
+                "    FOR (i = 0; i < 3; i = i * 2) y = (x / 2.0) != TRUE; END\n" +
+                "END";
+        List<Token> tokens = new Lexer(input).lex();
+        Ast.Source source = new Parser(tokens).parseSource();
+        FlatAst flat = new Parser(tokens).parseFlatSource();
+        Assertions.assertEquals(source, flat.toSource());
+        Assertions.assertEquals(source, FlatAst.of(source).toSource());
+        Assertions.assertEquals(FlatAst.SOURCE, flat.getKind(0));
+        Assertions.assertEquals(FlatAst.FIELD, flat.getKind(1));
+        Assertions.assertEquals(FlatAst.LITERAL, flat.getKind(2));
+        Assertions.assertEquals(FlatAst.METHOD, flat.getKind(3));
+        Ast.Statement statement = flat.toSource().getMethods().get(0).getStatements().get(2);
+        Assertions.assertEquals("FOR (i = 0; i < 3; i = i * 2) y = (x / 2.0) != TRUE; END", input.substring(statement.getStart(), statement.getEnd()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        flat.write(new DataOutputStream(bytes));
+        Assertions.assertEquals(source, FlatAst.read(ByteBuffer.wrap(bytes.toByteArray())).toSource());
+        // the name and value of the field, and the parameter count of main,
+        // including a name which is the Integer constant 1 and a value which
+        // is the method
+        int operands = 4 + 13 * flat.size() + 4;
+        for (int[] corruption : new int[][] {{0, flat.getConstantCount()}, {0, 2}, {3, flat.size()}, {3, 1}, {3, 0}, {3, 3}, {7, Integer.MAX_VALUE}}) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            buffer.putInt(operands + 4 * corruption[0], corruption[1]);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.read(buffer));
+        }
+    }
+
+    @Test
+    void testAstCache(@TempDir Path directory) throws IOException {
+        String input = "LET x: Integer = 12345678901234567890;\n" +
+                "DEF main() DO\n" +
+                "    LET y = 'c';\n" +
+                "    print(\"string\" == y.z(1.50, TRUE, NIL));\n" +
+                "END";
+        AstCache cache = new AstCache(directory);
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Ast.Source cold = cache.load(input);
+        Assertions.assertEquals(expected, cold);
+        Assertions.assertTrue(Files.exists(cache.getPath(input)));
+        Ast.Source warm = cache.load(input);
+        Assertions.assertEquals(expected, warm);
+        Assertions.assertNotSame(cold, warm);
+        Ast.Statement statement = warm.getMethods().get(0).getStatements().get(1);
+        Assertions.assertEquals(input.substring(input.indexOf("print"), input.indexOf("\nEND")), input.substring(statement.getStart(), statement.getEnd()));
+        // a corrupted file is replaced
+        byte[] bytes = Files.readAllBytes(cache.getPath(input));
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(cache.getPath(input), bytes);
+        Assertions.assertEquals(expected, cache.load(input));
+        Assertions.assertEquals(expected, new AstCache(directory).load(input));
+        Assertions.assertThrows(ParseException.class, () -> cache.load("LET x = ;"));
+        Assertions.assertFalse(Files.exists(cache.getPath("LET x = ;")));
+    }
+
+    @Test
+    void testInterner() {
+        String input = "LET x = 1 * 2;\n" +
+                "LET y = f(1 * 2, 1, x * 2);\n" +
+                "LET z = (1 * 2) == \"s\" && (1 * 2) != \"s\";";
+        List<Token> tokens = new Lexer(input).lex();
+        Parser parser = new Parser(tokens);
+        AstInterner interner = new AstInterner();
+        parser.setInterner(interner);
+        Ast.Source source = parser.parseSource();
+        Assertions.assertEquals(new Parser(tokens).parseSource().toString(), source.toString());
+        Ast.Expression first = source.getFields().get(0).getValue().get();
+        List<Ast.Expression> arguments = ((Ast.Expression.Function) source.getFields().get(1).getValue().get()).getArguments();
+        Ast.Expression.Binary third = (Ast.Expression.Binary) source.getFields().get(2).getValue().get();
+        Assertions.assertSame(first, arguments.get(0));
+        Assertions.assertSame(((Ast.Expression.Binary) first).getLeft(), arguments.get(1));
+        Assertions.assertNotSame(first, ((Ast.Expression.Binary) arguments.get(2)).getLeft());
+        Assertions.assertSame(((Ast.Expression.Binary) third.getLeft()).getLeft(), ((Ast.Expression.Binary) third.getRight()).getLeft());
+        Assertions.assertSame(((Ast.Expression.Binary) third.getLeft()).getRight(), ((Ast.Expression.Binary) third.getRight()).getRight());
+        // shared nodes have no span, unlike the rest
+        Assertions.assertEquals(-1, first.getStart());
+        Assertions.assertEquals(-1, first.getEnd());
+        Assertions.assertEquals("x * 2", input.substring(arguments.get(2).getStart(), arguments.get(2).getEnd()));
+        Assertions.assertEquals("(1 * 2) == \"s\"", input.substring(third.getLeft().getStart(), third.getLeft().getEnd()));
+        // 3 in x, 5 in y (but not x * 2), and 13 in z, where only 8 are distinct
+        Assertions.assertEquals(21, interner.getNodes());
+        Assertions.assertEquals(13, interner.getDeduplicatedNodes());
+        Assertions.assertTrue(interner.getDeduplicatedBytes() > 13 * 32);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testIncrementalParser(String test, String input, String target, String replacement) {
+        IncrementalParser parser = new IncrementalParser(input);
+        Ast.Source before = parser.getSource();
+        int offset = input.indexOf(target);
+        String edited = input.substring(0, offset) + replacement + input.substring(offset + target.length());
+        Object actual = parse(() -> parser.edit(offset, target.length(), replacement));
+        Assertions.assertEquals(parse(() -> new Parser(new Lexer(edited).lex()).parseSource()), actual);
+        if (!(actual instanceof Failure)) {
+            // the last method is reused, and is shifted by the edit
+            Ast.Source after = parser.getSource();
+            Ast.Method last = before.getMethods().get(before.getMethods().size() - 1);
+            Assertions.assertSame(last, after.getMethods().get(after.getMethods().size() - 1));
+            int shift = parser.getShift(after.getFields().size() + after.getMethods().size() - 1);
+            Assertions.assertEquals(replacement.length() - target.length(), shift);
+            Assertions.assertEquals(input.substring(last.getStart(), last.getEnd()), edited.substring(last.getStart() + shift, last.getEnd() + shift));
+            Assertions.assertEquals(edited.indexOf("LET"), after.getFields().get(0).getStart() + parser.getShift(0));
+        }
+    }
+
+    private static Stream<Arguments> testIncrementalParser() {
+        String input = "LET x: Integer = 1;\n" +
+                "DEF first() DO\n" +
+                "    IF a DO WHILE b DO c; END ELSE d; END\n" +
+                "END\n" +
+                "DEF second(x): Integer DO\n" +
+                "    RETURN x;\n" +
+                "END\n" +
+                "DEF third() DO END\n";
+        return Stream.of(
+                Arguments.of("Field", input, "1", "2 * y"),
+                Arguments.of("Statement", input, "c;", "c; print(c);"),
+                Arguments.of("Add Method", input, "DEF second", "DEF added() DO END\nDEF second"),
+                Arguments.of("Remove Method", input, "DEF second(x): Integer DO\n    RETURN x;\nEND\n", ""),
+                Arguments.of("Identifier", input, "second", "renamed"),
+                Arguments.of("Same Length", input, "c;", "e;"),
+                Arguments.of("Leading Token", "  " + input, "  ", " 1 "),
+                Arguments.of("Leading Semicolon", "  " + input, "  ", " ; "),
+                Arguments.of("Missing End", input, "END\nDEF second", "DEF second"),
+                Arguments.of("Invalid Statement", input, "RETURN x;", "RETURN ;")
+        );
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).